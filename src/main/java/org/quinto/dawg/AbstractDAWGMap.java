@@ -1,9 +1,18 @@
 package org.quinto.dawg;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.util.AbstractMap;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.quinto.dawg.util.LookaheadIterator;
 import org.quinto.dawg.util.ExtraMethodsMap;
 import org.quinto.dawg.util.Objects;
 
@@ -40,6 +49,117 @@ abstract class AbstractDAWGMap<V> extends AbstractMap<String, V> implements Navi
             throw new IllegalArgumentException("Argument contains zero character");
     }
     
+    /**
+     * Builds a compressed DAWG of entries in a single pass without looking up or removing anything.
+     * The words are streamed into the minimizing builder of {@link ModifiableDAWGSet#addAll(Iterable)},
+     * and the incoming transitions are built once on compression. Repeated entries are skipped.
+     *
+     * @param sortedEntries     entries sorted by keys, then by values
+     * @param uniqueKeys        true if every key should have a single value
+     * @return                  a DAWG containing a word {@code key + KEY_VALUE_SEPARATOR + value} for every entry
+     * @throws IllegalArgumentException if the entries are not sorted, or if {@code uniqueKeys} is true and a key has different values
+     */
+    static CompressedDAWGSet load(final Iterator<? extends Entry<String, String>> sortedEntries, final boolean uniqueKeys) {
+        ModifiableDAWGSet ret = new ModifiableDAWGSet(true, true);
+        ret.addAll(new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new LookaheadIterator<String>() {
+                    private String previousKey;
+                    private String previousStringEntry;
+
+                    @Override
+                    public String nextElement() {
+                        while (sortedEntries.hasNext()) {
+                            Entry<String, String> e = sortedEntries.next();
+                            String key = e.getKey();
+                            String value = e.getValue();
+                            checkNotNullAndContainsNoZeros(key);
+                            checkNotNullAndContainsNoZeros(value);
+                            //Separator is less than any other char, so words are sorted by keys, then by values.
+                            String stringEntry = key + KEY_VALUE_SEPARATOR + value;
+                            if (previousStringEntry != null) {
+                                int cmp = previousStringEntry.compareTo(stringEntry);
+                                if (cmp > 0)
+                                    throw new IllegalArgumentException("Entries are not sorted: " + key + '=' + value);
+                                if (cmp == 0)
+                                    continue;
+                            }
+                            if (uniqueKeys && key.equals(previousKey))
+                                throw new IllegalArgumentException("Duplicate key: " + key);
+                            previousKey = key;
+                            previousStringEntry = stringEntry;
+                            return stringEntry;
+                        }
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+        });
+        return ret.compress();
+    }
+    
+    /**
+     * Builds a compressed DAWG of entries read from lines of the form {@code key<TAB>value}, see {@link #load(Iterator, boolean)}.
+     * Empty lines are skipped. The stream is not closed.
+     *
+     * @param sortedTabSeparatedEntries     a stream of lines sorted by keys, then by values
+     * @param charset                       the charset the stream is encoded with
+     * @param uniqueKeys                    true if every key should have a single value
+     * @return                              a DAWG containing a word {@code key + KEY_VALUE_SEPARATOR + value} for every line
+     * @throws IOException if a read operation cannot be carried out
+     * @throws IllegalArgumentException if a line contains no tab, or the lines are not sorted,
+     *                                  or {@code uniqueKeys} is true and a key has different values
+     */
+    static CompressedDAWGSet load(InputStream sortedTabSeparatedEntries, Charset charset, boolean uniqueKeys) throws IOException {
+        final BufferedReader br = new BufferedReader(new InputStreamReader(sortedTabSeparatedEntries, charset));
+        try {
+            return load(new LookaheadIterator<Entry<String, String>>() {
+                @Override
+                public Entry<String, String> nextElement() {
+                    while (true) {
+                        String line;
+                        try {
+                            line = br.readLine();
+                        } catch (IOException e) {
+                            throw new ReadException(e);
+                        }
+                        if (line == null)
+                            throw NO_SUCH_ELEMENT_EXCEPTION;
+                        if (line.isEmpty())
+                            continue;
+                        int tab = line.indexOf('\t');
+                        if (tab < 0)
+                            throw new IllegalArgumentException("No tab in line: " + line);
+                        return new SimpleImmutableEntry<String, String>(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }, uniqueKeys);
+        } catch (ReadException e) {
+            throw (IOException)e.getCause();
+        }
+    }
+    
+    /**
+     * Carries an IOException through the iterators of {@link #load(InputStream, Charset, boolean)}.
+     */
+    private static class ReadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ReadException(IOException cause) {
+            super(cause);
+        }
+    }
+    
+    /**
+     * Returns a map with the same entries as a given map sorted in the natural order of keys.
+     */
+    static <V> Map<String, V> sortedByKeys(Map<String, V> map) {
+        if (map instanceof SortedMap && ((SortedMap<String, V>)map).comparator() == null)
+            return map;
+        return new TreeMap<String, V>(map);
+    }
+    
     static String getFirstElement(Iterable<String> i) {
         for (String s : i)
             return s;
@@ -70,6 +190,12 @@ abstract class AbstractDAWGMap<V> extends AbstractMap<String, V> implements Navi
     @Override
     public boolean containsKey(Object key) {
         checkNotNullAndContainsNoZeros(key);
+        DAWGNode source = dawg.getSourceNode();
+        if (source != null) {
+            //Every path of a DAWG leads to a word.
+            DAWGNode node = source.transition((String)key);
+            return node != null && node.transition(KEY_VALUE_SEPARATOR) != null;
+        }
         return dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR).iterator().hasNext();
     }
 
@@ -0,0 +1,212 @@
+package org.quinto.dawg;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.quinto.dawg.util.LookaheadIterator;
+
+/**
+ * An immutable map whose keys are stored in a compressed DAWG and whose values are stored in a column
+ * (an array of primitives or of objects) indexed by positions of the keys (see {@link CompressedDAWGSet#indexOf}).<br>
+ * Values of primitive columns are read with {@link #getInt}, {@link #getLong} or {@link #getDouble}
+ * without boxing and without building Strings.
+ * @param <V>   type of the values
+ */
+public class CompressedDAWGColumnMap<V> extends AbstractMap<String, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final CompressedDAWGSet keys;
+
+    //Exactly one of the columns is not null.
+    private final int ints[];
+    private final long longs[];
+    private final double doubles[];
+    private final Object objects[];
+
+    private CompressedDAWGColumnMap(CompressedDAWGSet keys, int ints[], long longs[], double doubles[], Object objects[]) {
+        this.keys = keys;
+        this.ints = ints;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.objects = objects;
+    }
+
+    private static CompressedDAWGSet compressKeys(Map<String, ?> map) {
+        ModifiableDAWGSet ret = new ModifiableDAWGSet(false);
+        ret.addAll(map.keySet());
+        return ret.compress();
+    }
+
+    /**
+     * Creates a map with a column of ints.
+     * @param map   a map containing non-null values
+     * @return      a map containing the same entries as {@code map}
+     */
+    public static CompressedDAWGColumnMap<Integer> ofInts(Map<String, Integer> map) {
+        CompressedDAWGSet keys = compressKeys(map);
+        int column[] = new int[keys.size()];
+        for (Map.Entry<String, Integer> e : map.entrySet())
+            column[keys.indexOf(e.getKey())] = e.getValue();
+        return new CompressedDAWGColumnMap<Integer>(keys, column, null, null, null);
+    }
+
+    /**
+     * Creates a map with a column of longs.
+     * @param map   a map containing non-null values
+     * @return      a map containing the same entries as {@code map}
+     */
+    public static CompressedDAWGColumnMap<Long> ofLongs(Map<String, Long> map) {
+        CompressedDAWGSet keys = compressKeys(map);
+        long column[] = new long[keys.size()];
+        for (Map.Entry<String, Long> e : map.entrySet())
+            column[keys.indexOf(e.getKey())] = e.getValue();
+        return new CompressedDAWGColumnMap<Long>(keys, null, column, null, null);
+    }
+
+    /**
+     * Creates a map with a column of doubles.
+     * @param map   a map containing non-null values
+     * @return      a map containing the same entries as {@code map}
+     */
+    public static CompressedDAWGColumnMap<Double> ofDoubles(Map<String, Double> map) {
+        CompressedDAWGSet keys = compressKeys(map);
+        double column[] = new double[keys.size()];
+        for (Map.Entry<String, Double> e : map.entrySet())
+            column[keys.indexOf(e.getKey())] = e.getValue();
+        return new CompressedDAWGColumnMap<Double>(keys, null, null, column, null);
+    }
+
+    /**
+     * Creates a map with a column of objects.
+     * @param map   a map
+     * @return      a map containing the same entries as {@code map}
+     */
+    public static <V> CompressedDAWGColumnMap<V> of(Map<String, ? extends V> map) {
+        CompressedDAWGSet keys = compressKeys(map);
+        Object column[] = new Object[keys.size()];
+        for (Map.Entry<String, ? extends V> e : map.entrySet())
+            column[keys.indexOf(e.getKey())] = e.getValue();
+        return new CompressedDAWGColumnMap<V>(keys, null, null, null, column);
+    }
+
+    private int indexOf(String key) {
+        int ret = keys.indexOf(key);
+        if (ret < 0)
+            throw new NoSuchElementException("No key " + key);
+        return ret;
+    }
+
+    /**
+     * Returns the value of a given key as an int.
+     * @param key   a key of this map
+     * @return      the value of {@code key}
+     * @throws NoSuchElementException if this map doesn't contain {@code key}
+     * @throws ClassCastException if this map doesn't have a column of ints
+     */
+    public int getInt(String key) {
+        if (ints == null)
+            throw new ClassCastException("Values are not ints");
+        return ints[indexOf(key)];
+    }
+
+    /**
+     * Returns the value of a given key as a long.
+     * @param key   a key of this map
+     * @return      the value of {@code key}
+     * @throws NoSuchElementException if this map doesn't contain {@code key}
+     * @throws ClassCastException if this map doesn't have a column of ints or longs
+     */
+    public long getLong(String key) {
+        if (longs != null)
+            return longs[indexOf(key)];
+        if (ints == null)
+            throw new ClassCastException("Values are not longs");
+        return ints[indexOf(key)];
+    }
+
+    /**
+     * Returns the value of a given key as a double.
+     * @param key   a key of this map
+     * @return      the value of {@code key}
+     * @throws NoSuchElementException if this map doesn't contain {@code key}
+     * @throws ClassCastException if this map doesn't have a column of primitives
+     */
+    public double getDouble(String key) {
+        if (doubles != null)
+            return doubles[indexOf(key)];
+        if (longs != null)
+            return longs[indexOf(key)];
+        if (ints == null)
+            throw new ClassCastException("Values are not doubles");
+        return ints[indexOf(key)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        if (ints != null)
+            return (V)Integer.valueOf(ints[index]);
+        if (longs != null)
+            return (V)Long.valueOf(longs[index]);
+        if (doubles != null)
+            return (V)Double.valueOf(doubles[index]);
+        return (V)objects[index];
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && keys.indexOf((String)key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String))
+            return null;
+        int index = keys.indexOf((String)key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public NavigableSet<String> keySet() {
+        return new UnmodifiableDAWGSet(keys);
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new LookaheadIterator<Entry<String, V>>() {
+                    private final Iterator<String> it = keys.iterator();
+                    private int i;
+
+                    @Override
+                    public Entry<String, V> nextElement() {
+                        if (it.hasNext())
+                            return new SimpleImmutableEntry<String, V>(it.next(), valueAt(i++));
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
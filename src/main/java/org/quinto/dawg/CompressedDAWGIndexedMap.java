@@ -0,0 +1,157 @@
+package org.quinto.dawg;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import org.quinto.dawg.util.LookaheadIterator;
+
+/**
+ * An immutable map that keeps keys and distinct values in two separate DAWGs.
+ * Words of a compressed DAWG are numbered by their positions in the sorted order (see {@link CompressedDAWGSet#indexOf}),
+ * so a key is mapped to its value through an array of value positions indexed by key positions.<br>
+ * Every value is stored once however many keys it has. {@link #get} reads the key along its path in the DAWG of keys
+ * and the value along its path in the DAWG of values; no other entries are enumerated.
+ */
+public class CompressedDAWGIndexedMap extends AbstractMap<String, String> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final CompressedDAWGSet keys;
+
+    private final CompressedDAWGSet values;
+
+    //Positions of the values in the DAWG of values by positions of their keys in the DAWG of keys.
+    private final int valueIds[];
+
+    /**
+     * Package-private constructor.
+     * Use {@link ModifiableDAWGMap#compressIndexed} to create instances of this class.
+     */
+    CompressedDAWGIndexedMap(DAWGMap map) {
+        ModifiableDAWGSet modifiableKeys = new ModifiableDAWGSet(false);
+        ModifiableDAWGSet modifiableValues = new ModifiableDAWGSet(false);
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            modifiableKeys.add(e.getKey());
+            modifiableValues.add(e.getValue());
+        }
+        keys = modifiableKeys.compress();
+        values = modifiableValues.compress();
+        //Entries of the map and words of the DAWG of keys are sorted the same way.
+        valueIds = new int[keys.size()];
+        int i = 0;
+        for (String value : map.values())
+            valueIds[i++] = values.indexOf(value);
+    }
+
+    /**
+     * Returns a view of the distinct values of this map.
+     * @return an unmodifiable set of values
+     */
+    public DAWGSet getDistinctValues() {
+        return new UnmodifiableDAWGSet(values);
+    }
+
+    @Override
+    public int size() {
+        return valueIds.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return valueIds.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        AbstractDAWGMap.checkNotNullAndContainsNoZeros(key);
+        return keys.contains(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        AbstractDAWGMap.checkNotNullAndContainsNoZeros(value);
+        return values.contains(value);
+    }
+
+    @Override
+    public String get(Object key) {
+        AbstractDAWGMap.checkNotNullAndContainsNoZeros(key);
+        int keyId = keys.indexOf((String)key);
+        return keyId < 0 ? null : values.get(valueIds[keyId]);
+    }
+
+    @Override
+    public NavigableSet<String> keySet() {
+        return new UnmodifiableDAWGSet(keys);
+    }
+
+    @Override
+    public Collection<String> values() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new LookaheadIterator<String>() {
+                    private int i;
+
+                    @Override
+                    public String nextElement() {
+                        if (i < valueIds.length)
+                            return values.get(valueIds[i++]);
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return valueIds.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new LookaheadIterator<Entry<String, String>>() {
+                    private final Iterator<String> it = keys.iterator();
+                    private int i;
+
+                    @Override
+                    public Entry<String, String> nextElement() {
+                        if (it.hasNext())
+                            return new SimpleImmutableEntry<String, String>(it.next(), values.get(valueIds[i++]));
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return valueIds.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Entry))
+                    return false;
+                Entry<?, ?> e = (Entry<?, ?>)o;
+                if (!(e.getKey() instanceof String) || !(e.getValue() instanceof String))
+                    return false;
+                String value = get(e.getKey());
+                return value != null && value.equals(e.getValue());
+            }
+        };
+    }
+}
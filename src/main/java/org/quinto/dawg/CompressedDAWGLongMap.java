@@ -0,0 +1,407 @@
+package org.quinto.dawg;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.quinto.dawg.util.LookaheadIterator;
+
+/**
+ * An immutable map from Strings to non-negative longs stored as a minimal acyclic transducer.
+ * Values are split into outputs of the transitions and of the accept nodes; the value of a key is the sum
+ * of the outputs along its path. Outputs are pushed toward the source node during construction,
+ * so keys share both prefixes and suffixes of their paths even if all the values are distinct
+ * (unlike {@link DAWGMap} which keeps the value inside every word).<br>
+ * The map is built from keys in ascending order in a single pass: the nodes of the path of the previous key
+ * that are not shared by the next key are frozen bottom-up and replaced by their registered equivalents,
+ * the same way {@link ModifiableDAWGSet} minimizes the paths of sorted words.
+ */
+public class CompressedDAWGLongMap extends AbstractMap<String, Long> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    //Transitions of the node i occupy positions [arcsBegin[i], arcsBegin[i + 1]) sorted by letter.
+    private final int arcsBegin[];
+    private final char labels[];
+    private final int targets[];
+    private final long outputs[];
+
+    private final BitSet acceptNodes;
+    private final long finalOutputs[];
+
+    private final int sourceNode;
+    private final int size;
+    private final int maxLength;
+
+    private CompressedDAWGLongMap(Builder builder) {
+        int nodeCount = builder.nodeCount;
+        int arcCount = builder.arcsBegin[nodeCount];
+        arcsBegin = Arrays.copyOf(builder.arcsBegin, nodeCount + 1);
+        labels = Arrays.copyOf(builder.labels, arcCount);
+        targets = Arrays.copyOf(builder.targets, arcCount);
+        outputs = Arrays.copyOf(builder.outputs, arcCount);
+        acceptNodes = builder.acceptNodes;
+        finalOutputs = Arrays.copyOf(builder.finalOutputs, nodeCount);
+        sourceNode = builder.sourceNode;
+        size = builder.size;
+        maxLength = builder.maxLength;
+    }
+
+    /**
+     * Creates a map containing the same entries as a given map.
+     * @param map   a map with non-null keys and non-negative values
+     * @return      a new map
+     */
+    public static CompressedDAWGLongMap of(Map<String, Long> map) {
+        if (!(map instanceof SortedMap) || ((SortedMap<String, Long>)map).comparator() != null)
+            map = new TreeMap<String, Long>(map);
+        return of(map.entrySet());
+    }
+
+    /**
+     * Creates a map from entries sorted by keys without collecting them first.
+     * @param sortedEntries     entries with non-negative values in strictly ascending order of their keys
+     * @return                  a new map
+     * @throws IllegalArgumentException if the keys are not in strictly ascending order or a value is negative
+     */
+    public static CompressedDAWGLongMap of(Iterable<? extends Map.Entry<String, Long>> sortedEntries) {
+        Builder builder = new Builder();
+        for (Map.Entry<String, Long> e : sortedEntries)
+            builder.add(e.getKey(), e.getValue());
+        return new CompressedDAWGLongMap(builder.finish());
+    }
+
+    /**
+     * Returns the quantity of nodes of the transducer.
+     * @return quantity of nodes
+     */
+    public int getNodeCount() {
+        return arcsBegin.length - 1;
+    }
+
+    /**
+     * Returns the quantity of transitions of the transducer.
+     * @return quantity of transitions
+     */
+    public int getTransitionCount() {
+        return labels.length;
+    }
+
+    private int transition(int node, char letter) {
+        int lo = arcsBegin[node];
+        int hi = arcsBegin[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char c = labels[mid];
+            if (c < letter)
+                lo = mid + 1;
+            else if (c > letter)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of a key without boxing.
+     * @param key           a String
+     * @param defaultValue  a value to return if this map doesn't contain {@code key}
+     * @return              the value of {@code key}, or {@code defaultValue} if there is no such key
+     */
+    public long get(String key, long defaultValue) {
+        int node = sourceNode;
+        long ret = 0L;
+        for (int i = 0; i < key.length(); i++) {
+            int arc = transition(node, key.charAt(i));
+            if (arc < 0)
+                return defaultValue;
+            ret += outputs[arc];
+            node = targets[arc];
+        }
+        return acceptNodes.get(node) ? ret + finalOutputs[node] : defaultValue;
+    }
+
+    @Override
+    public Long get(Object key) {
+        if (!(key instanceof String))
+            return null;
+        long ret = get((String)key, -1L);
+        return ret < 0L ? null : ret;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && get((String)key, -1L) >= 0L;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<String, Long>> entrySet() {
+        return new AbstractSet<Entry<String, Long>>() {
+            @Override
+            public Iterator<Entry<String, Long>> iterator() {
+                return new LookaheadIterator<Entry<String, Long>>() {
+                    //Nodes of the current path, positions of the next transitions to follow and sums of outputs.
+                    private final int nodes[] = new int[maxLength + 1];
+                    private final int arcs[] = new int[maxLength + 1];
+                    private final long sums[] = new long[maxLength + 1];
+                    private final char chars[] = new char[maxLength];
+                    private int depth = size == 0 ? -1 : 0;
+                    private boolean acceptChecked;
+
+                    {
+                        nodes[0] = sourceNode;
+                        arcs[0] = arcsBegin[sourceNode];
+                    }
+
+                    @Override
+                    public Entry<String, Long> nextElement() {
+                        while (depth >= 0) {
+                            int node = nodes[depth];
+                            if (!acceptChecked) {
+                                acceptChecked = true;
+                                if (acceptNodes.get(node))
+                                    return new SimpleImmutableEntry<String, Long>(new String(chars, 0, depth), sums[depth] + finalOutputs[node]);
+                            }
+                            int arc = arcs[depth];
+                            if (arc < arcsBegin[node + 1]) {
+                                arcs[depth] = arc + 1;
+                                chars[depth] = labels[arc];
+                                sums[depth + 1] = sums[depth] + outputs[arc];
+                                depth++;
+                                nodes[depth] = targets[arc];
+                                arcs[depth] = arcsBegin[targets[arc]];
+                                acceptChecked = false;
+                            } else
+                                depth--;
+                        }
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Builds a transducer from keys in ascending order (see Daciuk et al., "Incremental construction
+     * of minimal acyclic finite-state automata", and Mihov, Maurel, "Direct construction of minimal acyclic
+     * subsequential transducers").
+     */
+    private static class Builder {
+        //Frozen nodes in the same layout as in the map.
+        int arcsBegin[] = new int[16];
+        char labels[] = new char[16];
+        int targets[] = new int[16];
+        long outputs[] = new long[16];
+        final BitSet acceptNodes = new BitSet();
+        long finalOutputs[] = new long[16];
+        int hashCodes[] = new int[16];
+        int nodeCount;
+
+        //Open addressing hash table of frozen nodes, contains node + 1 or 0 for empty cells.
+        int register[] = new int[32];
+
+        //Nodes of the path of the previous key that are not frozen yet.
+        UnfrozenNode frontier[] = new UnfrozenNode[]{new UnfrozenNode()};
+        String previousKey;
+        int sourceNode;
+        int size;
+        int maxLength;
+
+        void add(String key, long value) {
+            if (value < 0L)
+                throw new IllegalArgumentException("Negative value " + value + " of key " + key);
+            int prefixLength = 0;
+            if (previousKey != null) {
+                if (previousKey.compareTo(key) >= 0)
+                    throw new IllegalArgumentException("Keys are not in ascending order: " + previousKey + ", " + key);
+                int length = Math.min(previousKey.length(), key.length());
+                while (prefixLength < length && previousKey.charAt(prefixLength) == key.charAt(prefixLength))
+                    prefixLength++;
+                freezeTail(prefixLength);
+            }
+            if (frontier.length <= key.length()) {
+                int oldLength = frontier.length;
+                frontier = Arrays.copyOf(frontier, Math.max(key.length() + 1, oldLength * 2));
+                for (int i = oldLength; i < frontier.length; i++)
+                    frontier[i] = new UnfrozenNode();
+            }
+            for (int i = prefixLength; i < key.length(); i++)
+                frontier[i].addArc(key.charAt(i));
+            frontier[key.length()].accept = true;
+            //Leave the common part of the outputs on the shared transitions and push the rest forward.
+            for (int i = 0; i < prefixLength; i++) {
+                UnfrozenNode parent = frontier[i];
+                long output = parent.outputs[parent.arcCount - 1];
+                long common = Math.min(output, value);
+                parent.outputs[parent.arcCount - 1] = common;
+                frontier[i + 1].prependOutput(output - common);
+                value -= common;
+            }
+            if (prefixLength == key.length())
+                frontier[prefixLength].finalOutput = value;
+            else {
+                UnfrozenNode node = frontier[prefixLength];
+                node.outputs[node.arcCount - 1] = value;
+            }
+            previousKey = key;
+            size++;
+            maxLength = Math.max(maxLength, key.length());
+        }
+
+        /**
+         * Freezes the nodes of the path of the previous key deeper than a given depth.
+         */
+        private void freezeTail(int depth) {
+            for (int i = previousKey.length(); i > depth; i--) {
+                UnfrozenNode parent = frontier[i - 1];
+                parent.targets[parent.arcCount - 1] = freeze(frontier[i]);
+                frontier[i].clear();
+            }
+        }
+
+        Builder finish() {
+            if (previousKey != null)
+                freezeTail(0);
+            sourceNode = freeze(frontier[0]);
+            frontier = null;
+            register = null;
+            hashCodes = null;
+            return this;
+        }
+
+        private int freeze(UnfrozenNode node) {
+            int hashCode = node.hashCode();
+            int mask = register.length - 1;
+            for (int i = hashCode & mask;; i = (i + 1) & mask) {
+                int frozen = register[i] - 1;
+                if (frozen < 0)
+                    break;
+                if (hashCodes[frozen] == hashCode && node.equalsFrozen(this, frozen))
+                    return frozen;
+            }
+            int ret = nodeCount++;
+            if (ret + 1 >= arcsBegin.length) {
+                arcsBegin = Arrays.copyOf(arcsBegin, arcsBegin.length * 2);
+                finalOutputs = Arrays.copyOf(finalOutputs, arcsBegin.length);
+                hashCodes = Arrays.copyOf(hashCodes, arcsBegin.length);
+            }
+            int begin = arcsBegin[ret];
+            int end = begin + node.arcCount;
+            if (end > labels.length) {
+                int length = Math.max(end, labels.length * 2);
+                labels = Arrays.copyOf(labels, length);
+                targets = Arrays.copyOf(targets, length);
+                outputs = Arrays.copyOf(outputs, length);
+            }
+            System.arraycopy(node.labels, 0, labels, begin, node.arcCount);
+            System.arraycopy(node.targets, 0, targets, begin, node.arcCount);
+            System.arraycopy(node.outputs, 0, outputs, begin, node.arcCount);
+            arcsBegin[ret + 1] = end;
+            if (node.accept) {
+                acceptNodes.set(ret);
+                finalOutputs[ret] = node.finalOutput;
+            }
+            hashCodes[ret] = hashCode;
+            if (nodeCount * 2 > register.length)
+                rehash();
+            else
+                register(ret);
+            return ret;
+        }
+
+        private void register(int node) {
+            int mask = register.length - 1;
+            int i = hashCodes[node] & mask;
+            while (register[i] != 0)
+                i = (i + 1) & mask;
+            register[i] = node + 1;
+        }
+
+        private void rehash() {
+            register = new int[register.length * 2];
+            for (int i = 0; i < nodeCount; i++)
+                register(i);
+        }
+    }
+
+    private static class UnfrozenNode {
+        char labels[] = new char[2];
+        //Frozen targets of the transitions; the target of the last transition is the next node of the frontier.
+        int targets[] = new int[2];
+        long outputs[] = new long[2];
+        int arcCount;
+        boolean accept;
+        long finalOutput;
+
+        void addArc(char letter) {
+            if (arcCount == labels.length) {
+                labels = Arrays.copyOf(labels, arcCount * 2);
+                targets = Arrays.copyOf(targets, arcCount * 2);
+                outputs = Arrays.copyOf(outputs, arcCount * 2);
+            }
+            labels[arcCount] = letter;
+            targets[arcCount] = -1;
+            outputs[arcCount++] = 0L;
+        }
+
+        void prependOutput(long output) {
+            if (output == 0L)
+                return;
+            for (int i = 0; i < arcCount; i++)
+                outputs[i] += output;
+            if (accept)
+                finalOutput += output;
+        }
+
+        void clear() {
+            arcCount = 0;
+            accept = false;
+            finalOutput = 0L;
+        }
+
+        boolean equalsFrozen(Builder builder, int node) {
+            int begin = builder.arcsBegin[node];
+            if (builder.arcsBegin[node + 1] - begin != arcCount || builder.acceptNodes.get(node) != accept)
+                return false;
+            if (accept && builder.finalOutputs[node] != finalOutput)
+                return false;
+            for (int i = 0; i < arcCount; i++)
+                if (builder.labels[begin + i] != labels[i] || builder.targets[begin + i] != targets[i] || builder.outputs[begin + i] != outputs[i])
+                    return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int ret = accept ? 1231 + (int)(finalOutput ^ (finalOutput >>> 32)) * 31 : 1237;
+            for (int i = 0; i < arcCount; i++) {
+                ret = ret * 31 + labels[i];
+                ret = ret * 31 + targets[i];
+                ret = ret * 31 + (int)(outputs[i] ^ (outputs[i] >>> 32));
+            }
+            //Spread the bits since the register uses the lowest ones.
+            return ret ^ (ret >>> 16);
+        }
+    }
+}
@@ -17,6 +17,16 @@ public class CompressedDAWGMap extends DAWGMap implements Serializable {
         return new ModifiableDAWGMap(((CompressedDAWGSet)dawg).uncompress());
     }
 
+    /**
+     * Creates a copy of this map that finds keys by values ({@link #containsValue}, {@link #removeValue})
+     * using a DAWG of the reversed entries instead of incoming transitions.
+     * @return a map containing the same entries as this map
+     * @see CompressedDAWGSet#withReversedWords
+     */
+    public CompressedDAWGMap withReversedWords() {
+        return new CompressedDAWGMap(((CompressedDAWGSet)dawg).withReversedWords());
+    }
+
     @Override
     public int hashCode() {
         // Hash code should return the same value for equal objects.
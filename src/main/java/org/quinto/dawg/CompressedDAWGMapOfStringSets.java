@@ -13,7 +13,9 @@ class CompressedDAWGMapOfStringSets extends DAWGMapOfStringSets implements Seria
     }
     
     public ModifiableDAWGMapOfStringSets uncompress() {
-        return new ModifiableDAWGMapOfStringSets(((CompressedDAWGSet)dawg).uncompress());
+        KeyCountingDAWGSet ret = new KeyCountingDAWGSet(dawg.isWithIncomingTransitions());
+        ret.addAll(dawg);
+        return new ModifiableDAWGMapOfStringSets(ret);
     }
 
     @Override
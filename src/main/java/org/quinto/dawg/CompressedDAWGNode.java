@@ -169,6 +169,15 @@ class CompressedDAWGNode extends DAWGNode {
         return index / graph.getOutgoingTransitionSizeInInts();
     }
 
+    /**
+     * Every incoming transition of a state has its own record in the data array,
+     * but all of them share the transition set of the state.
+     */
+    @Override
+    long getStateKey() {
+        return (long)getTransitionSetBeginIndex() << 32 | (isAcceptNode() ? 1L << 31 : 0L) | getOutgoingTransitionsSize();
+    }
+
     @Override
     public int hashCode() {
         return index;
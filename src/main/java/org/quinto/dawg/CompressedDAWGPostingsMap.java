@@ -0,0 +1,277 @@
+package org.quinto.dawg;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import org.quinto.dawg.util.LookaheadIterator;
+
+/**
+ * An immutable set-valued map that keeps keys and distinct values in two separate DAWGs
+ * and the values of every key as a sorted list of value positions (see {@link CompressedDAWGSet#indexOf}).<br>
+ * The lists are stored in compressed sparse rows: the list of the key at position {@code i} occupies the bytes
+ * from {@code offsets[i]} to {@code offsets[i + 1]} of a single array, every position is stored as a varint
+ * of its difference with the previous one. Values are sorted the same way as their positions,
+ * so the values of several keys are intersected or merged as lists of ints without building Strings.
+ */
+public class CompressedDAWGPostingsMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int EMPTY[] = new int[0];
+
+    private final CompressedDAWGSet keys;
+
+    private final CompressedDAWGSet values;
+
+    //Beginnings of the lists of value positions by positions of their keys, followed by the length of postings.
+    private final int offsets[];
+
+    //Delta-encoded varints of the value positions.
+    private final byte postings[];
+
+    /**
+     * Package-private constructor.
+     * Use {@link DAWGSetValuedMap#compressPostings} to create instances of this class.
+     */
+    CompressedDAWGPostingsMap(DAWGSetValuedMap map) {
+        ModifiableDAWGSet modifiableKeys = new ModifiableDAWGSet(false);
+        ModifiableDAWGSet modifiableValues = new ModifiableDAWGSet(false);
+        for (Map.Entry<String, String> e : map.entries()) {
+            modifiableKeys.add(e.getKey());
+            modifiableValues.add(e.getValue());
+        }
+        keys = modifiableKeys.compress();
+        values = modifiableValues.compress();
+        offsets = new int[keys.size() + 1];
+        byte buffer[] = new byte[16];
+        int length = 0;
+        int keyId = -1;
+        int prev = 0;
+        String prevKey = null;
+        //Entries are sorted by keys, then by values, so the positions of the values of every key ascend.
+        for (Map.Entry<String, String> e : map.entries()) {
+            if (!e.getKey().equals(prevKey)) {
+                prevKey = e.getKey();
+                offsets[++keyId] = length;
+                prev = 0;
+            }
+            int valueId = values.indexOf(e.getValue());
+            if (buffer.length - length < 5)
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            length = writeVarInt(buffer, length, valueId - prev);
+            prev = valueId;
+        }
+        offsets[keys.size()] = length;
+        postings = Arrays.copyOf(buffer, length);
+    }
+
+    private static int writeVarInt(byte buffer[], int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte)(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte)value;
+        return pos;
+    }
+
+    /**
+     * Returns a view of the keys of this map.
+     * @return an unmodifiable set of keys
+     */
+    public NavigableSet<String> keySet() {
+        return new UnmodifiableDAWGSet(keys);
+    }
+
+    /**
+     * Returns a view of the distinct values of this map. Positions of the values in this set are their ids.
+     * @return an unmodifiable set of values
+     */
+    public DAWGSet getDistinctValues() {
+        return new UnmodifiableDAWGSet(values);
+    }
+
+    /**
+     * Returns the quantity of keys of this map.
+     * @return quantity of keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    public boolean containsKey(String key) {
+        return keys.contains(key);
+    }
+
+    /**
+     * Returns the id of a value.
+     * @param value     a String
+     * @return          the position of {@code value} among the distinct values, or -1 if this map doesn't contain it
+     */
+    public int getValueId(String value) {
+        return values.indexOf(value);
+    }
+
+    /**
+     * Returns the value with a given id.
+     * @param valueId   an id returned by {@link #getValueId} or {@link #getValueIds}
+     * @return          the value
+     * @throws IndexOutOfBoundsException if there is no value with this id
+     */
+    public String getValue(int valueId) {
+        return values.get(valueId);
+    }
+
+    /**
+     * Returns the quantity of values of a key. The list of values is scanned but not decoded.
+     * @param key   a String
+     * @return      quantity of values of {@code key}, 0 if this map doesn't contain it
+     */
+    public int getValueCount(String key) {
+        int keyId = keys.indexOf(key);
+        if (keyId < 0)
+            return 0;
+        int ret = 0;
+        //Every varint ends with a byte without the continuation bit.
+        for (int i = offsets[keyId]; i < offsets[keyId + 1]; i++)
+            if (postings[i] >= 0)
+                ret++;
+        return ret;
+    }
+
+    /**
+     * Returns the ids of the values of a key.
+     * @param key   a String
+     * @return      an ascending array of ids of the values of {@code key}, empty if this map doesn't contain it
+     */
+    public int[] getValueIds(String key) {
+        int keyId = keys.indexOf(key);
+        return keyId < 0 ? EMPTY : decode(keyId);
+    }
+
+    private int[] decode(int keyId) {
+        int end = offsets[keyId + 1];
+        int ret[] = new int[end - offsets[keyId]];
+        int size = 0;
+        int value = 0;
+        for (int i = offsets[keyId]; i < end;) {
+            int delta = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = postings[i++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    break;
+            }
+            ret[size++] = value += delta;
+        }
+        return size == ret.length ? ret : Arrays.copyOf(ret, size);
+    }
+
+    /**
+     * Returns the ids of the values shared by all the given keys.
+     * The shortest list is decoded first, the others are merged with it.
+     * @param keys  Strings
+     * @return      an ascending array of ids of the values that every key of {@code keys} has,
+     *              empty if {@code keys} is empty or one of them is not contained in this map
+     */
+    public int[] intersectValueIds(String... keys) {
+        if (keys.length == 0)
+            return EMPTY;
+        int keyIds[] = new int[keys.length];
+        int shortest = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keyIds[i] = this.keys.indexOf(keys[i]);
+            if (keyIds[i] < 0)
+                return EMPTY;
+            if (getPostingsLength(keyIds[i]) < getPostingsLength(keyIds[shortest]))
+                shortest = i;
+        }
+        int ret[] = decode(keyIds[shortest]);
+        for (int i = 0; i < keyIds.length && ret.length > 0; i++)
+            if (i != shortest)
+                ret = intersect(ret, decode(keyIds[i]));
+        return ret;
+    }
+
+    /**
+     * Returns the ids of the values of at least one of the given keys.
+     * @param keys  Strings
+     * @return      an ascending array of distinct ids of the values of {@code keys}
+     */
+    public int[] unionValueIds(String... keys) {
+        int ret[] = EMPTY;
+        for (String key : keys)
+            ret = union(ret, getValueIds(key));
+        return ret;
+    }
+
+    private int getPostingsLength(int keyId) {
+        return offsets[keyId + 1] - offsets[keyId];
+    }
+
+    private static int[] intersect(int a[], int b[]) {
+        int ret[] = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length;) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                ret[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(ret, size);
+    }
+
+    private static int[] union(int a[], int b[]) {
+        int ret[] = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                ret[size++] = a[i++];
+            else if (a[i] > b[j])
+                ret[size++] = b[j++];
+            else {
+                ret[size++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length)
+            ret[size++] = a[i++];
+        while (j < b.length)
+            ret[size++] = b[j++];
+        return Arrays.copyOf(ret, size);
+    }
+
+    /**
+     * Returns the values with given ids.
+     * @param valueIds  ids returned by {@link #getValueIds}, {@link #intersectValueIds} or {@link #unionValueIds}
+     * @return          an iterable over the values in the order of {@code valueIds}
+     */
+    public Iterable<String> getValues(final int valueIds[]) {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new LookaheadIterator<String>() {
+                    private int i;
+
+                    @Override
+                    public String nextElement() {
+                        if (i < valueIds.length)
+                            return values.get(valueIds[i++]);
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    }
+                };
+            }
+        };
+    }
+}
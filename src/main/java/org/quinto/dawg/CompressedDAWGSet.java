@@ -44,6 +44,11 @@ public class CompressedDAWGSet extends DAWGSet implements Serializable {
      */
     transient Integer size;
     
+    /**
+     * Quantity of keys of a map of sets stored in this DAWG, see {@link DAWGSet#getKeyCount}.
+     */
+    transient Integer keyCount;
+    
     transient NavigableSet<Character> alphabet;
     
     /**
@@ -62,13 +67,45 @@ public class CompressedDAWGSet extends DAWGSet implements Serializable {
     
     private transient Integer hashCode;
     
+    /**
+     * Quantities of words in the right languages of every transition record and of its preceding siblings,
+     * see {@link #countWords}, {@link #indexOf} and {@link #get}. Calculated on demand.
+     * Volatile so that other threads see the array only after it has been filled.
+     */
+    private transient volatile int wordsUpTo[];
+    
+    /**
+     * Optional index that makes substring search visit only the nodes leading to matching words.
+     */
+    SubstringIndex substringIndex;
+    
+    /**
+     * Optional DAWG of the reversed words used for suffix search instead of {@link #incomingData}.
+     */
+    CompressedDAWGSet reversedWords;
+    
     /**
      * Package-private constructor.
      * Use {@link ModifiableDAWGSet#compress} to create instances of this class.
      */
     CompressedDAWGSet() {
     }
-    
+
+    /**
+     * Creates a DAWG containing all the words of the given DAWGs (e.g. of several dictionary shards).
+     * The graphs are traversed synchronously in sorted order and the result is minimized during the traversal,
+     * so the words are neither materialized nor added one by one. The DAWGs may have different alphabets.<br>
+     * The result stores incoming transitions if at least one of the given DAWGs does.
+     * @param sets      DAWGs to merge
+     * @return          a DAWG containing every word contained in at least one of {@code sets}
+     */
+    public static CompressedDAWGSet merge(Collection<? extends DAWGSet> sets) {
+        boolean withIncomingTransitions = false;
+        for (DAWGSet set : sets)
+            withIncomingTransitions |= set.isWithIncomingTransitions();
+        return ModifiableDAWGSet.union(sets, withIncomingTransitions).compress();
+    }
+
     /**
      * This method is invoked when the object is read from input stream.
      * @see Serializable
@@ -90,6 +127,10 @@ public class CompressedDAWGSet extends DAWGSet implements Serializable {
         return sourceNode;
     }
     
+    CompressedDAWGNode createNode(int index) {
+        return new CompressedDAWGNode(this, index);
+    }
+    
     @Override
     CompressedDAWGNode getEndNode() {
         if (endNode == null)
@@ -107,18 +148,316 @@ public class CompressedDAWGSet extends DAWGSet implements Serializable {
         return incomingData != null;
     }
     
+    /**
+     * Determines if this DAWG has a substring index.
+     * @return true if this DAWG was compressed with {@link ModifiableDAWGSet#compress(boolean)}
+     * and {@code withSubstringIndex} flag set
+     */
+    public boolean isWithSubstringIndex() {
+        return substringIndex != null;
+    }
+    
+    /**
+     * Creates a copy of this DAWG that keeps a minimal DAWG of the reversed words instead of incoming transitions.
+     * Suffix search walks the reversed DAWG forward, which is usually much smaller than the incoming transitions
+     * (3 ints per transition).
+     * @return a DAWG containing the same words as this DAWG and a DAWG of their reversals
+     */
+    public CompressedDAWGSet withReversedWords() {
+        CompressedDAWGSet ret = copyOutgoingTransitions();
+        if (reversedWords == null) {
+            //Sorted reversals are added in one pass that minimizes every path once.
+            String reversed[] = new String[size()];
+            int i = 0;
+            for (String word : this)
+                reversed[i++] = reverse(word);
+            Arrays.sort(reversed);
+            ret.reversedWords = new ModifiableDAWGSet(false, Arrays.asList(reversed)).compress();
+        } else
+            ret.reversedWords = reversedWords;
+        return ret;
+    }
+    
+    /**
+     * Creates a copy of this DAWG that stores incoming transitions for fast suffix search.
+     * The incoming transitions are computed from the outgoing ones by reversing the edges,
+     * so the words are not enumerated.
+     * @return this DAWG if it already stores incoming transitions, a copy of it with incoming transitions otherwise
+     */
+    public CompressedDAWGSet withSuffixIndex() {
+        if (isWithIncomingTransitions())
+            return this;
+        CompressedDAWGSet ret = copyOutgoingTransitions();
+        ret.incomingData = createIncomingData();
+        return ret;
+    }
+    
+    /**
+     * Returns the position of a word in the sorted order of the words of this DAWG.
+     * Positions form a minimal perfect hash of the words: they are distinct and lie in range [0, {@link #size}).
+     * The word is read once along its transition path without enumerating other words.
+     * @param word      a String
+     * @return          the position of {@code word}, or -1 if this DAWG doesn't contain it
+     */
+    public int indexOf(String word) {
+        int upTo[] = getWordsUpTo();
+        int transitionSizeInInts = getOutgoingTransitionSizeInInts();
+        CompressedDAWGNode node = getSourceNode();
+        int ret = 0;
+        for (int i = 0; i < word.length(); i++) {
+            //Words that are prefixes of the word are less than it.
+            if (node.isAcceptNode())
+                ret++;
+            int first = node.getTransitionSetBeginIndex() / transitionSizeInInts;
+            node = node.transition(word.charAt(i));
+            if (node == null)
+                return -1;
+            ret += getWordsBefore(upTo, first, node.getIndex() / transitionSizeInInts - first);
+        }
+        return node.isAcceptNode() ? ret : -1;
+    }
+    
+    /**
+     * Returns the word at a given position in the sorted order of the words of this DAWG.
+     * This method is the inverse of {@link #indexOf}.
+     * @param index     position of the word
+     * @return          the word at position {@code index}
+     * @throws IndexOutOfBoundsException if {@code index} is out of range [0, {@link #size})
+     */
+    public String get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        int upTo[] = getWordsUpTo();
+        int transitionSizeInInts = getOutgoingTransitionSizeInInts();
+        StringBuilder sb = new StringBuilder(getMaxLength());
+        CompressedDAWGNode node = getSourceNode();
+        while (true) {
+            if (node.isAcceptNode()) {
+                if (index == 0)
+                    return sb.toString();
+                index--;
+            }
+            //The last child whose preceding siblings have no more than index words.
+            int first = node.getTransitionSetBeginIndex() / transitionSizeInInts;
+            int lo = 0;
+            int hi = node.getOutgoingTransitionsSize() - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (getWordsBefore(upTo, first, mid) <= index)
+                    lo = mid;
+                else
+                    hi = mid - 1;
+            }
+            index -= getWordsBefore(upTo, first, lo);
+            sb.append(getLetter(node, lo));
+            node = createNode((first + lo) * transitionSizeInInts);
+        }
+    }
+    
+    /**
+     * Returns the label of a given outgoing transition of a node.
+     * @param parent    a node
+     * @param position  position of the transition in the transition set of {@code parent}
+     * @return          the letter of the transition
+     */
+    char getLetter(CompressedDAWGNode parent, int position) {
+        for (int i = parent.getIndex() + 1;; i++) {
+            int bits = outgoingData[i];
+            int count = Integer.bitCount(bits);
+            if (position < count) {
+                for (int j = 0; j < position; j++)
+                    bits &= bits - 1;
+                return letters[(i - parent.getIndex() - 1 << 5) + Integer.numberOfTrailingZeros(bits)];
+            }
+            position -= count;
+        }
+    }
+    
+    private int[] getWordsUpTo() {
+        int ret[] = wordsUpTo;
+        if (ret == null) {
+            ret = new int[outgoingData.length / getOutgoingTransitionSizeInInts()];
+            fillWordsUpTo(getSourceNode(), ret);
+            wordsUpTo = ret;
+        }
+        return ret;
+    }
+    
+    /**
+     * Counts the words in the right language of a node filling {@link #wordsUpTo} for its transition set.
+     * Every transition set is traversed once: a filled set has a non-zero total in its last record.
+     */
+    private int fillWordsUpTo(CompressedDAWGNode node, int upTo[]) {
+        int ret = node.isAcceptNode() ? 1 : 0;
+        int size = node.getOutgoingTransitionsSize();
+        if (size == 0)
+            return ret;
+        int transitionSizeInInts = getOutgoingTransitionSizeInInts();
+        int begin = node.getTransitionSetBeginIndex();
+        int first = begin / transitionSizeInInts;
+        if (upTo[first + size - 1] == 0) {
+            int s = 0;
+            for (int i = 0; i < size; i++) {
+                s += fillWordsUpTo(createNode(begin + i * transitionSizeInInts), upTo);
+                upTo[first + i] = s;
+            }
+        }
+        return ret + upTo[first + size - 1];
+    }
+    
+    /**
+     * Returns the quantity of words in the right languages of the transitions preceding a given one in its transition set.
+     */
+    private static int getWordsBefore(int upTo[], int first, int position) {
+        return position == 0 ? 0 : upTo[first + position - 1];
+    }
+    
+    /**
+     * Reads the quantity of words from {@link #wordsUpTo} instead of memoizing it per query.
+     */
+    @Override
+    int countWords(DAWGNode node, Map<Long, Integer> counts) {
+        CompressedDAWGNode n = (CompressedDAWGNode)node;
+        int ret = n.isAcceptNode() ? 1 : 0;
+        int size = n.getOutgoingTransitionsSize();
+        if (size == 0)
+            return ret;
+        return ret + getWordsUpTo()[n.getTransitionSetBeginIndex() / getOutgoingTransitionSizeInInts() + size - 1];
+    }
+    
+    /**
+     * Creates a DAWG sharing the outgoing transitions and the substring index with this DAWG.
+     */
+    private CompressedDAWGSet copyOutgoingTransitions() {
+        CompressedDAWGSet ret = this instanceof CompressedDAWGSetLargeAlphabet ? new CompressedDAWGSetLargeAlphabet() : new CompressedDAWGSet();
+        ret.letters = letters;
+        ret.outgoingData = outgoingData;
+        ret.substringIndex = substringIndex;
+        ret.size = size;
+        ret.keyCount = keyCount;
+        ret.maxLength = maxLength;
+        ret.alphabet = alphabet;
+        ret.wordsUpTo = wordsUpTo;
+        ret.calculateCachedValues();
+        return ret;
+    }
+    
+    /**
+     * Builds {@link #incomingData} in the format produced by {@link ModifiableDAWGSet#compress}:
+     * a record of the end node, then the incoming transition lists of the end node and of all the states.
+     * Every list is sorted by letter. A record is (letter, beginning of the list of the parent, size of that list).
+     */
+    private int[] createIncomingData() {
+        // Number the states, collect their incoming transitions as (letter, parent) pairs.
+        Map<Long, Integer> ids = new HashMap<Long, Integer>();
+        List<CompressedDAWGNode> states = new ArrayList<CompressedDAWGNode>();
+        CompressedDAWGNode source = getSourceNode();
+        ids.put(source.getStateKey(), 0);
+        states.add(source);
+        long transitions[] = new long[getTransitionCount()];
+        int targets[] = new int[transitions.length];
+        int transitionCount = 0;
+        for (int i = 0; i < states.size(); i++) {
+            for (SimpleEntry<Character, DAWGNode> transition : getOutgoingTransitions(states.get(i))) {
+                CompressedDAWGNode child = (CompressedDAWGNode)transition.getValue();
+                Integer childId = ids.get(child.getStateKey());
+                if (childId == null) {
+                    childId = states.size();
+                    ids.put(child.getStateKey(), childId);
+                    states.add(child);
+                }
+                if (transitionCount == transitions.length) {
+                    transitions = Arrays.copyOf(transitions, transitionCount * 2 + 1);
+                    targets = Arrays.copyOf(targets, transitions.length);
+                }
+                transitions[transitionCount] = (long)transition.getKey() << 32 | i;
+                targets[transitionCount++] = childId;
+            }
+        }
+        int stateCount = states.size();
+        // Group the transitions by their targets.
+        int listsBegin[] = new int[stateCount + 1];
+        for (int i = 0; i < transitionCount; i++)
+            listsBegin[targets[i] + 1]++;
+        for (int i = 0; i < stateCount; i++)
+            listsBegin[i + 1] += listsBegin[i];
+        int fill[] = Arrays.copyOf(listsBegin, stateCount);
+        long lists[] = new long[transitionCount];
+        for (int i = 0; i < transitionCount; i++)
+            lists[fill[targets[i]]++] = transitions[i];
+        // End node has a transition from every accept state per every letter leading to it.
+        long endList[] = new long[transitionCount];
+        int endCount = 0;
+        for (int i = 0; i < stateCount; i++) {
+            Arrays.sort(lists, listsBegin[i], listsBegin[i + 1]);
+            if (states.get(i).isAcceptNode())
+                for (int j = listsBegin[i]; j < listsBegin[i + 1]; j++)
+                    if (j == listsBegin[i] || lists[j] >>> 32 != lists[j - 1] >>> 32)
+                        endList[endCount++] = lists[j] >>> 32 << 32 | i;
+        }
+        Arrays.sort(endList, 0, endCount);
+        int statesBegin = (1 + endCount) * INCOMING_TRANSITION_SIZE_IN_INTS;
+        int data[] = new int[statesBegin + transitionCount * INCOMING_TRANSITION_SIZE_IN_INTS];
+        data[1] = INCOMING_TRANSITION_SIZE_IN_INTS;
+        data[2] = endCount;
+        int pos = INCOMING_TRANSITION_SIZE_IN_INTS;
+        for (int i = 0; i < endCount; i++)
+            pos = putIncomingTransition(data, pos, endList[i], statesBegin, listsBegin);
+        for (int i = 0; i < transitionCount; i++)
+            pos = putIncomingTransition(data, pos, lists[i], statesBegin, listsBegin);
+        return data;
+    }
+    
+    private static int putIncomingTransition(int data[], int pos, long transition, int statesBegin, int listsBegin[]) {
+        int parent = (int)transition;
+        data[pos++] = (int)(transition >>> 32);
+        data[pos++] = statesBegin + listsBegin[parent] * INCOMING_TRANSITION_SIZE_IN_INTS;
+        data[pos++] = listsBegin[parent + 1] - listsBegin[parent];
+        return pos;
+    }
+    
+    /**
+     * Determines if this DAWG was created by {@link #withReversedWords}.
+     * @return true if suffix search uses a DAWG of the reversed words
+     */
+    public boolean isWithReversedWords() {
+        return reversedWords != null;
+    }
+    
+    @Override
+    DAWGSet getReversedWords() {
+        return reversedWords;
+    }
+    
+    @Override
+    SubstringIndex.Filter getSubstringFilter(String substring) {
+        return substringIndex == null ? null : substringIndex.createFilter(this, substring);
+    }
+    
     @Override
     Collection<? extends DAWGNode> getNodesBySuffix(String suffix) {
         char suffixText[] = suffix.toCharArray();
         char lastChar = suffixText[suffixText.length - 1];
         Iterable<CompressedDAWGNode> ret = getEndNode().getIncomingTransitions(lastChar);
+        int indexes[] = new int[16];
         for (int i = suffixText.length - 1; i >= 0; i--) {
-            List<CompressedDAWGNode> levelNodes = new ArrayList<CompressedDAWGNode>();
+            // Frontier is kept as a sorted array of distinct node indexes.
+            int count = 0;
             char c = suffixText[i];
-            for (CompressedDAWGNode node : ret)
-                if (node.getId() != DAWGNode.START)
-                    for (CompressedDAWGNode incoming : node.getIncomingTransitions(c))
-                        levelNodes.add(incoming);
+            for (CompressedDAWGNode node : ret) {
+                if (node.getId() != DAWGNode.START) {
+                    for (CompressedDAWGNode incoming : node.getIncomingTransitions(c)) {
+                        if (count == indexes.length)
+                            indexes = Arrays.copyOf(indexes, count << 1);
+                        indexes[count++] = incoming.getIndex();
+                    }
+                }
+            }
+            Arrays.sort(indexes, 0, count);
+            List<CompressedDAWGNode> levelNodes = new ArrayList<CompressedDAWGNode>(count);
+            for (int j = 0; j < count; j++)
+                if (j == 0 || indexes[j] != indexes[j - 1])
+                    levelNodes.add(indexes[j] == DAWGNode.START ? getSourceNode() : new CompressedDAWGNode(this, indexes[j]));
             if (i == 0)
                 return levelNodes;
             ret = levelNodes;
@@ -176,14 +515,17 @@ public class CompressedDAWGSet extends DAWGSet implements Serializable {
     
     @Override
     public int size() {
-        if (size == null) {
-            int s = 0;
-            for (String word : this)
-                s++;
-            size = s;
-        }
+        if (size == null)
+            size = countStrings("", null, false, null, false);
         return size;
     }
+
+    @Override
+    int getKeyCount() {
+        if (keyCount == null)
+            keyCount = super.getKeyCount();
+        return keyCount;
+    }
     
     private void countNodes(CompressedDAWGNode node, HashSet<Integer> nodeIDHashSet) {
         if (node.getOutgoingTransitionsSize() != 0)
@@ -20,6 +20,11 @@ class CompressedDAWGSetLargeAlphabet extends CompressedDAWGSet {
     void calculateCachedValues() {
     }
 
+    @Override
+    char getLetter(CompressedDAWGNode parent, int position) {
+        return (char)outgoingData[parent.getTransitionSetBeginIndex() + position * OUTGOING_TRANSITION_SIZE_IN_INTS];
+    }
+
     @Override
     public int getTransitionCount() {
         return outgoingData.length / OUTGOING_TRANSITION_SIZE_IN_INTS - 1;
@@ -36,6 +41,11 @@ class CompressedDAWGSetLargeAlphabet extends CompressedDAWGSet {
             sourceNode = new CompressedDAWGNodeLargeAlphabet(this, DAWGNode.START);
         return sourceNode;
     }
+    
+    @Override
+    CompressedDAWGNode createNode(int index) {
+        return new CompressedDAWGNodeLargeAlphabet(this, index);
+    }
 
     @Override
     SemiNavigableMap<Character, DAWGNode> getOutgoingTransitions(DAWGNode parent) {
@@ -0,0 +1,107 @@
+package org.quinto.dawg;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A thread-safe DAWG-based map for many reader threads and occasional writers.
+ * It is backed by a {@link ConcurrentDAWGSet}: readers never lock and iterators are snapshot-based.
+ * Modifications of this map are atomic: e.g. replacing the value of a key is seen by readers
+ * as a single change. Modifications made through the views of this map are atomic
+ * on the level of single entries only.
+ */
+public class ConcurrentDAWGMap extends DAWGMap {
+    public ConcurrentDAWGMap() {
+        super(new ConcurrentDAWGSet());
+    }
+
+    public ConcurrentDAWGMap(Map<String, String> map) {
+        this();
+        putAll(map);
+    }
+
+    private ConcurrentDAWGSet getSet() {
+        return (ConcurrentDAWGSet)dawg;
+    }
+
+    /**
+     * Returns an immutable map containing all the mappings that this map contains at the moment of call.
+     * It takes O(1) time.
+     * @return an unmodifiable map that is not affected by further modifications of this map
+     */
+    public DAWGMap snapshot() {
+        return new DAWGMap(getSet().snapshot());
+    }
+
+    public CompressedDAWGMap compress() {
+        return new CompressedDAWGMap(getSet().compress());
+    }
+
+    @Override
+    public String put(String key, String value) {
+        ConcurrentDAWGSet set = getSet();
+        synchronized (set) {
+            set.beginUpdate();
+            try {
+                return super.put(key, value);
+            } finally {
+                set.endUpdate();
+            }
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends String> m) {
+        ConcurrentDAWGSet set = getSet();
+        synchronized (set) {
+            set.beginUpdate();
+            try {
+                super.putAll(m);
+            } finally {
+                set.endUpdate();
+            }
+        }
+    }
+
+    @Override
+    public String remove(Object key) {
+        synchronized (dawg) {
+            return super.remove(key);
+        }
+    }
+
+    @Override
+    public boolean removeValue(Object value) {
+        synchronized (dawg) {
+            return super.removeValue(value);
+        }
+    }
+
+    @Override
+    public String pollFirstKey() {
+        synchronized (dawg) {
+            return super.pollFirstKey();
+        }
+    }
+
+    @Override
+    public String pollLastKey() {
+        synchronized (dawg) {
+            return super.pollLastKey();
+        }
+    }
+
+    @Override
+    public Entry<String, String> pollFirstEntry() {
+        synchronized (dawg) {
+            return super.pollFirstEntry();
+        }
+    }
+
+    @Override
+    public Entry<String, String> pollLastEntry() {
+        synchronized (dawg) {
+            return super.pollLastEntry();
+        }
+    }
+}
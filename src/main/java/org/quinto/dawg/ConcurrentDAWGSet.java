@@ -0,0 +1,117 @@
+package org.quinto.dawg;
+
+import java.util.Collection;
+
+/**
+ * A thread-safe DAWG for many reader threads and occasional writers.<br>
+ * Readers never lock: each query works on the immutable version of the graph
+ * that was current when the query started, so readers neither block each other nor the writers.
+ * Iterators are snapshot-based: they never throw {@link java.util.ConcurrentModificationException}
+ * and don't see the modifications made after their creation.<br>
+ * Writers are serialized by the monitor of this set. Bulk operations ({@link #addAll}, {@link #removeAll},
+ * {@link #retainAll}) become visible to readers at once.<br>
+ * {@code pollFirst} and {@code pollLast} of the views returned by {@code subSet}, {@code headSet} and the others are not atomic.
+ */
+public class ConcurrentDAWGSet extends PersistentDAWGSet {
+    //Version being built by the current group of modifications. Guarded by this.
+    private Version pendingVersion;
+
+    //Nesting depth of beginUpdate() calls. Guarded by this.
+    private int updateDepth;
+
+    /**
+     * Creates an empty ConcurrentDAWGSet.
+     */
+    public ConcurrentDAWGSet() {
+    }
+
+    /**
+     * Creates a ConcurrentDAWGSet from an iterable of Strings, e.g. from a {@link ModifiableDAWGSet}.
+     * @param strCollection     an {@link java.util.Iterable} containing Strings that the DAWG will contain
+     */
+    public ConcurrentDAWGSet(Iterable<? extends String> strCollection) {
+        super(strCollection);
+    }
+
+    /**
+     * Starts a group of modifications that become visible to readers at once on the matching {@link #endUpdate}.
+     * The caller should hold the monitor of this set until the group is finished.
+     */
+    synchronized void beginUpdate() {
+        if (updateDepth++ == 0)
+            pendingVersion = super.getWritableVersion();
+    }
+
+    /**
+     * Finishes a group of modifications started by {@link #beginUpdate}.
+     */
+    synchronized void endUpdate() {
+        if (--updateDepth == 0) {
+            super.setVersion(pendingVersion);
+            pendingVersion = null;
+        }
+    }
+
+    @Override
+    Version getWritableVersion() {
+        return updateDepth > 0 ? pendingVersion : super.getWritableVersion();
+    }
+
+    @Override
+    void setVersion(Version version) {
+        if (updateDepth > 0)
+            pendingVersion = version;
+        else
+            super.setVersion(version);
+    }
+
+    @Override
+    public synchronized boolean add(String str) {
+        return super.add(str);
+    }
+
+    @Override
+    public synchronized boolean addAll(Iterable<? extends String> strCollection) {
+        return super.addAll(strCollection);
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends String> c) {
+        return super.addAll(c);
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        return super.remove(o);
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> c) {
+        return super.removeAll(c);
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> c) {
+        beginUpdate();
+        try {
+            return super.retainAll(c);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+    }
+
+    @Override
+    public synchronized String pollFirst() {
+        return super.pollFirst();
+    }
+
+    @Override
+    public synchronized String pollLast() {
+        return super.pollLast();
+    }
+}
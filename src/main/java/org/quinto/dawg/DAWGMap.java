@@ -3,6 +3,7 @@ package org.quinto.dawg;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,12 +34,23 @@ public class DAWGMap extends AbstractDAWGMap<String> {
     @Override
     public String get(Object key) {
         checkNotNullAndContainsNoZeros(key);
-        return valueOfStringEntry(getFirstElement(dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR)), key);
+        DAWGNode source = dawg.getSourceNode();
+        if (source == null)
+            return valueOfStringEntry(getFirstElement(dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR)), key);
+        DAWGNode node = source.transition((String)key);
+        if (node != null)
+            node = node.transition(KEY_VALUE_SEPARATOR);
+        //The only word reachable from the separator is the value.
+        return node == null ? null : dawg.getSingleWord(node);
     }
 
     @Override
     public String put(String key, String value) {
         checkNotNullAndContainsNoZeros(value);
+        if (dawg instanceof ModifiableDAWGSet) {
+            checkNotNullAndContainsNoZeros(key);
+            return ((ModifiableDAWGSet)dawg).replaceSuffix(key + KEY_VALUE_SEPARATOR, value);
+        }
         String old = get(key);
         if (old != null && old.equals(value))
             return old;
@@ -52,7 +64,12 @@ public class DAWGMap extends AbstractDAWGMap<String> {
     @Override
     public String remove(Object key) {
         checkNotNullAndContainsNoZeros(key);
-        return valueOfStringEntry(pollFirstElement(dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR)), key);
+        if (dawg.getSourceNode() == null)
+            return valueOfStringEntry(pollFirstElement(dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR)), key);
+        String old = get(key);
+        if (old != null)
+            dawg.remove((String)key + KEY_VALUE_SEPARATOR + old);
+        return old;
     }
 
     @Override
@@ -198,6 +215,103 @@ public class DAWGMap extends AbstractDAWGMap<String> {
         return new SubMap(dawg.prefixSet(keyPrefix));
     }
     
+    /**
+     * Receives the entries of a map from {@link #visitEntries}.
+     */
+    public interface EntryVisitor {
+        /**
+         * Receives an entry. The key and the value are views of a buffer shared by all the entries,
+         * they are valid only until this method returns: call {@code toString()} to keep them.
+         * @param key       the key of an entry
+         * @param value     the value of the entry
+         * @return          false to stop visiting entries
+         */
+        boolean visit(CharSequence key, CharSequence value);
+    }
+    
+    /**
+     * Passes all the entries of this map to a visitor in the ascending order of keys.
+     * Unlike iteration over {@link #entrySet()}, no Strings are created per entry:
+     * the words of the DAWG are walked with a single char buffer.
+     * The map should not be modified while it is visited.
+     * @param visitor   a visitor
+     * @return          false if the visitor has stopped visiting entries
+     */
+    public boolean visitEntries(EntryVisitor visitor) {
+        DAWGNode source = dawg.getSourceNode();
+        CharSlice key = new CharSlice();
+        CharSlice value = new CharSlice();
+        char buffer[] = new char[Math.max(dawg.getMaxLength(), 1)];
+        key.buffer = value.buffer = buffer;
+        if (source != null)
+            return visitEntries(source, 0, -1, key, value, visitor);
+        for (String stringEntry : dawg) {
+            if (stringEntry.length() > buffer.length)
+                key.buffer = value.buffer = buffer = new char[stringEntry.length()];
+            stringEntry.getChars(0, stringEntry.length(), buffer, 0);
+            key.length = stringEntry.indexOf(KEY_VALUE_SEPARATOR);
+            value.offset = key.length + 1;
+            value.length = stringEntry.length() - value.offset;
+            if (!visitor.visit(key, value))
+                return false;
+        }
+        return true;
+    }
+    
+    private boolean visitEntries(DAWGNode node, int level, int keyLength, CharSlice key, CharSlice value, EntryVisitor visitor) {
+        if (node.isAcceptNode() && keyLength >= 0) {
+            key.length = keyLength;
+            value.offset = keyLength + 1;
+            value.length = level - value.offset;
+            if (!visitor.visit(key, value))
+                return false;
+        }
+        for (Entry<Character, DAWGNode> transition : dawg.getOutgoingTransitions(node)) {
+            char c = transition.getKey();
+            //The length of a concurrently modified DAWG can exceed the length known beforehand.
+            if (level == key.buffer.length)
+                key.buffer = value.buffer = Arrays.copyOf(key.buffer, level << 1);
+            key.buffer[level] = c;
+            //The first separator on the path ends the key.
+            if (!visitEntries(transition.getValue(), level + 1, keyLength < 0 && c == KEY_VALUE_SEPARATOR ? level : keyLength, key, value, visitor))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * A view of a part of a char array.
+     */
+    private static class CharSlice implements CharSequence {
+        private char buffer[];
+        private int offset;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            return buffer[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException();
+            return String.valueOf(buffer, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(buffer, offset, length);
+        }
+    }
+    
     private Iterator<String> keyIterator(boolean desc) {
         return keyIterator(dawg, desc);
     }
@@ -19,8 +19,6 @@ import org.quinto.dawg.util.ExtraMethodsMap;
 import org.quinto.dawg.util.Objects;
 
 class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
-    private transient Integer size;
-    
     DAWGMapOfStringSets() {
     }
     
@@ -30,16 +28,13 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
 
     @Override
     public int size() {
-        if (size == null) {
-            int s = 0;
-            for (Iterator<String> it = DAWGMapOfStringSets.this.uniqueKeysIterator(false); it.hasNext(); it.next())
-                s++;
-            if (dawg.isImmutable())
-                size = s;
-            else
-                return s;
+        int ret = dawg.getKeyCount();
+        if (ret < 0) {
+            ret = 0;
+            for (Iterator<String> it = uniqueKeysIterator(false); it.hasNext(); it.next())
+                ret++;
         }
-        return size;
+        return ret;
     }
     
     public int flatSize() {
@@ -75,18 +70,25 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
     }
 
     @Override
-    public Set<String> get(Object key) {
-        checkNotNullAndContainsNoZeros(key);
-        return new ValuesSetFromIterable(dawg.getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR), (String)key);
+    public NavigableSet<String> get(Object key) {
+        return get(key, false);
     }
 
-    private Set<String> get(Object key, boolean desc) {
+    private NavigableSet<String> get(Object key, boolean desc) {
         checkNotNullAndContainsNoZeros(key);
-        return new ValuesSetFromIterable(dawg.getStrings((String)key + KEY_VALUE_SEPARATOR, null, null, desc, null, false, null, false), (String)key);
+        NavigableSet<String> words = dawg.prefixSet((String)key + KEY_VALUE_SEPARATOR);
+        return new ValuesSet(desc ? words.descendingSet() : words, (String)key, true);
     }
 
     @Override
     public Set<String> remove(Object key) {
+        checkNotNullAndContainsNoZeros(key);
+        if (dawg instanceof ModifiableDAWGSet) {
+            // The subgraph of the values is detached at once.
+            ModifiableDAWGSet removed = ((ModifiableDAWGSet)dawg).removeStartingWith((String)key + KEY_VALUE_SEPARATOR);
+            // An unmodifiable set of previously stored data.
+            return removed.isEmpty() ? Collections.EMPTY_SET : removed.compress();
+        }
         Set<String> ret = get((String)key);
         if (ret.isEmpty())
             ret = Collections.EMPTY_SET;
@@ -108,6 +110,8 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
         Set<String> ret = get(key);
         if (ret.isEmpty())
             ret = null;
+        else if (dawg instanceof ModifiableDAWGSet) // The subgraph of the values is copied without enumerating them.
+            ret = ((ModifiableDAWGSet)dawg).copySuffixes(key + KEY_VALUE_SEPARATOR).compress();
         else // An unmodifiable set of previously stored data.
             ret = new ModifiableDAWGSet(false, ret).compress();
         putAll(key, value);
@@ -372,25 +376,38 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
         return uniqueKeysIterator(dawg, desc);
     }
     
+    /**
+     * Iterates over keys skipping the values of every key with a single seek in the DAWG,
+     * so the iteration doesn't depend on the quantity of values.
+     */
     private Iterator<String> uniqueKeysIterator(final NavigableSet<String> set, final boolean desc) {
+        // Keys go in the natural order if the iteration goes in the natural order of the set.
+        final boolean ascending = (set.comparator() == null) != desc;
         return new LookaheadIterator<String>() {
-            private final Iterator<String> delegate = desc ? set.descendingIterator() : set.iterator();
             private String current;
-            
+
             @Override
             public String nextElement() {
-                while (delegate.hasNext()) {
-                    String next = keyOfStringEntry(delegate.next());
-                    if (current == null || !current.equals(next))
-                        return current = next;
+                String next;
+                if (current == null)
+                    next = desc ? set.last() : set.first();
+                else if (ascending) {
+                    // All the entries of the current key are less than this string.
+                    String from = current + KEY_VALUE_SEPARATOR_EXCLUSIVE;
+                    next = desc ? set.floor(from) : set.ceiling(from);
+                } else {
+                    // All the entries of the current key are greater than this string.
+                    String to = current + KEY_VALUE_SEPARATOR;
+                    next = desc ? set.lower(to) : set.higher(to);
                 }
-                throw NO_SUCH_ELEMENT_EXCEPTION;
+                if (next == null)
+                    throw NO_SUCH_ELEMENT_EXCEPTION;
+                return current = keyOfStringEntry(next);
             }
 
             @Override
             public void remove(String key) {
                 DAWGMapOfStringSets.this.remove(key);
-                delegate.remove();
             }
         };
     }
@@ -427,17 +444,13 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
     private Iterator<Entry<String, Set<String>>> entryWithSetValuesIterator(final NavigableSet<String> set) {
         final boolean desc = set.comparator() != null;
         return new LookaheadIterator<Entry<String, Set<String>>>() {
-            private final Iterator<String> delegate = set.iterator();
-            private String currentKey;
-            
+            private final Iterator<String> keys = uniqueKeysIterator(set, false);
+
             @Override
             public Entry<String, Set<String>> nextElement() {
-                while (delegate.hasNext()) {
-                    String nextKey = keyOfStringEntry(delegate.next());
-                    if (currentKey == null || !currentKey.equals(nextKey)) {
-                        currentKey = nextKey;
-                        return new MapEntry(currentKey, get(currentKey, desc));
-                    }
+                if (keys.hasNext()) {
+                    String key = keys.next();
+                    return new MapEntry(key, get(key, desc));
                 }
                 throw NO_SUCH_ELEMENT_EXCEPTION;
             }
@@ -445,7 +458,6 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
             @Override
             public void remove(Entry<String, Set<String>> entry) {
                 DAWGMapOfStringSets.this.remove(entry.getKey());
-                delegate.remove();
             }
         };
     }
@@ -489,23 +501,18 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
     private Iterator<Set<String>> valueSetsIterator(final NavigableSet<String> set) {
         final boolean desc = set.comparator() != null;
         return new LookaheadIterator<Set<String>>() {
-            private final Iterator<String> delegate = set.iterator();
-            private String currentKey;
-            
+            private final Iterator<String> keys = uniqueKeysIterator(set, false);
+
             @Override
             public Set<String> nextElement() {
-                while (delegate.hasNext()) {
-                    String nextKey = keyOfStringEntry(delegate.next());
-                    if (currentKey == null || !currentKey.equals(nextKey))
-                        return get(currentKey = nextKey, desc);
-                }
+                if (keys.hasNext())
+                    return get(keys.next(), desc);
                 throw NO_SUCH_ELEMENT_EXCEPTION;
             }
 
             @Override
             public void remove(Set<String> value) {
                 value.clear();
-                delegate.remove();
             }
         };
     }
@@ -582,41 +589,36 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
         }
     }
     
-    // TODO: implement NavigableSet interface.
-    private class ValuesSetFromIterable extends AbstractSet<String> implements Set<String> {
-        private final Iterable<String> values;
+    /**
+     * A view of the values of a key backed by the words of the DAWG that start with the key and the separator.
+     * Values are ordered the same way as these words, so navigation and ranges are delegated to a subset of the DAWG,
+     * and the size is counted by the DAWG over its nodes without enumerating the values.
+     */
+    private class ValuesSet extends AbstractSet<String> implements NavigableSet<String> {
+        private final NavigableSet<String> words;
         private final String key;
-        private int size = -1;
+        private final String prefix;
+        // True if the view contains all the values of the key.
+        private final boolean whole;
         
-        public ValuesSetFromIterable(Iterable<String> values, String key) {
-            this.values = values;
+        public ValuesSet(NavigableSet<String> words, String key, boolean whole) {
+            this.words = words;
             this.key = key;
+            this.prefix = key + KEY_VALUE_SEPARATOR;
+            this.whole = whole;
         }
-
-        @Override
-        public int size() {
-            if (size < 0) {
-                int s = 0;
-                for (String value : values)
-                    s++;
-                if (dawg.isImmutable())
-                    size = s;
-                else
-                    return s;
-            }
-            return size;
+        
+        private String word(Object value) {
+            checkNotNullAndContainsNoZeros(value);
+            return prefix + value;
         }
-
-        @Override
-        public boolean isEmpty() {
-            return size < 0 ? !values.iterator().hasNext() : size == 0;
+        
+        private String value(String word) {
+            return word == null ? null : word.substring(prefix.length());
         }
-
-        @Override
-        public Iterator<String> iterator() {
+        
+        private Iterator<String> values(final Iterator<String> it) {
             return new Iterator<String>() {
-                private final Iterator<String> it = values.iterator();
-                
                 @Override
                 public boolean hasNext() {
                     return it.hasNext();
@@ -624,7 +626,7 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
 
                 @Override
                 public String next() {
-                    return valueOfStringEntry(it.next());
+                    return value(it.next());
                 }
 
                 @Override
@@ -634,15 +636,39 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
             };
         }
 
+        @Override
+        public int size() {
+            return words.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return words.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return words.contains(word(o));
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return values(words.iterator());
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return values(words.descendingIterator());
+        }
+
         @Override
         public boolean add(String e) {
-            checkNotNullAndContainsNoZeros(e);
-            return dawg.add(key + KEY_VALUE_SEPARATOR + e);
+            return words.add(word(e));
         }
 
         @Override
         public boolean addAll(final Collection<? extends String> c) {
-            return dawg.addAll(new Iterable<String>() {
+            return words.addAll(new AbstractCollection<String>() {
                 @Override
                 public Iterator<String> iterator() {
                     return new Iterator<String>() {
@@ -650,9 +676,7 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
                         
                         @Override
                         public String next() {
-                            String s = it.next();
-                            checkNotNullAndContainsNoZeros(s);
-                            return key + KEY_VALUE_SEPARATOR + s;
+                            return word(it.next());
                         }
 
                         @Override
@@ -666,13 +690,17 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
                         }
                     };
                 }
+
+                @Override
+                public int size() {
+                    return c.size();
+                }
             });
         }
 
         @Override
         public boolean remove(Object o) {
-            checkNotNullAndContainsNoZeros(o);
-            return dawg.remove(key + KEY_VALUE_SEPARATOR + o);
+            return words.remove(word(o));
         }
 
         @Override
@@ -685,7 +713,90 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
 
         @Override
         public void clear() {
-            DAWGMapOfStringSets.this.remove(key);
+            if (whole)
+                DAWGMapOfStringSets.this.remove(key);
+            else
+                super.clear();
+        }
+
+        @Override
+        public String lower(String e) {
+            return value(words.lower(word(e)));
+        }
+
+        @Override
+        public String floor(String e) {
+            return value(words.floor(word(e)));
+        }
+
+        @Override
+        public String ceiling(String e) {
+            return value(words.ceiling(word(e)));
+        }
+
+        @Override
+        public String higher(String e) {
+            return value(words.higher(word(e)));
+        }
+
+        @Override
+        public String pollFirst() {
+            return value(words.pollFirst());
+        }
+
+        @Override
+        public String pollLast() {
+            return value(words.pollLast());
+        }
+
+        @Override
+        public String first() {
+            return value(words.first());
+        }
+
+        @Override
+        public String last() {
+            return value(words.last());
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return words.comparator();
+        }
+
+        @Override
+        public NavigableSet<String> descendingSet() {
+            return new ValuesSet(words.descendingSet(), key, whole);
+        }
+
+        @Override
+        public NavigableSet<String> subSet(String fromElement, boolean fromInclusive, String toElement, boolean toInclusive) {
+            return new ValuesSet(words.subSet(word(fromElement), fromInclusive, word(toElement), toInclusive), key, false);
+        }
+
+        @Override
+        public NavigableSet<String> headSet(String toElement, boolean inclusive) {
+            return new ValuesSet(words.headSet(word(toElement), inclusive), key, false);
+        }
+
+        @Override
+        public NavigableSet<String> tailSet(String fromElement, boolean inclusive) {
+            return new ValuesSet(words.tailSet(word(fromElement), inclusive), key, false);
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            return tailSet(fromElement, true);
         }
     }
     
@@ -1522,9 +1633,15 @@ class DAWGMapOfStringSets extends AbstractDAWGMap<Set<String>> {
         }
 
         @Override
-        public Set<String> get(Object key) {
+        public NavigableSet<String> get(Object key) {
             checkNotNullAndContainsNoZeros(key);
-            return new ValuesSetFromIterable(((StringsFilter)delegate).getStringsStartingWith((String)key + KEY_VALUE_SEPARATOR), (String)key);
+            String from = (String)key + KEY_VALUE_SEPARATOR;
+            String to = (String)key + KEY_VALUE_SEPARATOR_EXCLUSIVE;
+            DAWGSet.SubSet range = (DAWGSet.SubSet)delegate;
+            // A key out of range has no values here, and adding one fails like putting the key into this map.
+            if (!range.inRange(from, true) || !range.inRange(to, false))
+                return new ValuesSet(range.emptySubSet(), (String)key, false);
+            return new ValuesSet(desc ? delegate.subSet(to, false, from, true) : delegate.subSet(from, true, to, false), (String)key, true);
         }
 
         @Override
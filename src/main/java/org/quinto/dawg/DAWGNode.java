@@ -9,6 +9,17 @@ abstract class DAWGNode {
     
     public abstract boolean isAcceptNode();
     
+    /**
+     * Retrieves a key of the state of the graph this node represents.
+     * Two nodes of the same graph have equal keys if and only if they represent the same state
+     * (i.e. the same set of transition paths), even if they are reached by different transitions.
+     
+     * @return      a long identifying the state of this node within its graph
+     */
+    long getStateKey() {
+        return getId();
+    }
+    
     /**
      * Follows an outgoing transition of this node labeled with a given char.
      
@@ -29,8 +40,8 @@ abstract class DAWGNode {
         DAWGNode currentNode = this;
         
         //Iteratively transition through the DAWG using the chars in str
-        for (char c : str.toCharArray()) {
-            currentNode = currentNode.transition(c);
+        for (int i = 0; i < str.length(); i++) {
+            currentNode = currentNode.transition(str.charAt(i));
             if (currentNode == null)
                 break;
         }
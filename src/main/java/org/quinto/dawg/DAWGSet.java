@@ -12,12 +12,24 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.quinto.dawg.util.LongHashSet;
+import org.quinto.dawg.util.SimpleEntry;
 
 public abstract class DAWGSet extends AbstractSet<String> implements NavigableSet<String>, StringsFilter {
     private static final SimpleDateFormat dotFileNameDateFormat = new SimpleDateFormat("yyyyMMddHHmmssSSS");
@@ -237,7 +249,23 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
     public Iterable<String> getStringsWithSubstring(String str) {
         return getStrings("", str, null, false, null, false, null, false);
     }
-    
+
+    /**
+     * Determines if the DAWGSet contains at least one String containing a given String.
+     * Every node of the graph is visited at most once per state of the substring matcher.
+
+     * @param str       a String
+     * @return          true if some String present in the DAWGSet contains {@code str}
+     */
+    public boolean containsAnyWithSubstring(String str) {
+        if (str.isEmpty())
+            return !isEmpty();
+        DAWGNode source = getSourceNode();
+        if (source == null)
+            return getStringsWithSubstring(str).iterator().hasNext();
+        return new SubstringSearch(this, str, false).isPossible(source, 0);
+    }
+
     /**
      * Retrieves all the Strings in the DAWGSet that begin with a given String.
      
@@ -261,7 +289,190 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
     
     abstract int getMaxLength();
     
+    /**
+     * Prepares a substring index query.
+     * @param substring a non-empty String that should be contained in the words
+     * @return          a filter of the nodes leading to words containing {@code substring},
+     *                  or null if this DAWG has no substring index
+     */
+    SubstringIndex.Filter getSubstringFilter(String substring) {
+        return null;
+    }
+    
+    /**
+     * Finds the nodes from which a word ending with a given suffix is reachable
+     * by walking the incoming transitions back from the nodes found by {@link #getNodesBySuffix}.
+     * @param suffix    a non-empty String
+     * @return          state keys of the nodes (see {@link DAWGNode#getStateKey}),
+     *                  or null if the nodes can't be found without a forward traversal
+     */
+    LongHashSet getSuffixAncestors(String suffix) {
+        return null;
+    }
+    
+    /**
+     * Returns a DAWG containing the reversed words of this DAWG if it is used for suffix search.
+     * @return          a DAWG of the reversed words or null
+     */
+    DAWGSet getReversedWords() {
+        return null;
+    }
+    
+    static String reverse(String str) {
+        char chars[] = str.toCharArray();
+        for (int i = 0, j = chars.length - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        return String.valueOf(chars);
+    }
+    
+    /**
+     * Reads the word of a node whose right language consists of a single word.
+     * @param node      a node of this DAWG
+     * @return          the only String that can be built by a transition path from {@code node} to an accept node
+     */
+    String getSingleWord(DAWGNode node) {
+        StringBuilder sb = new StringBuilder();
+        while (!node.isAcceptNode()) {
+            SimpleEntry<Character, DAWGNode> transition = getOutgoingTransitions(node).iterator().next();
+            sb.append(transition.getKey());
+            node = transition.getValue();
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts distinct prefixes of words followed by {@link AbstractDAWGMap#KEY_VALUE_SEPARATOR},
+     * i.e. keys of a {@link DAWGMapOfStringSets} backed by this DAWG.
+     * Transitions labeled with the separator are not followed, so values are never enumerated.
+     * @return      the quantity of keys, or -1 if this DAWG doesn't expose its nodes
+     */
+    int getKeyCount() {
+        DAWGNode source = getSourceNode();
+        return source == null ? -1 : countKeys(source, new HashMap<Long, Integer>());
+    }
+
+    private int countKeys(DAWGNode node, Map<Long, Integer> keyCounts) {
+        Integer ret = keyCounts.get(node.getStateKey());
+        if (ret == null) {
+            int count = 0;
+            for (SimpleEntry<Character, DAWGNode> transition : getOutgoingTransitions(node))
+                count += transition.getKey() == AbstractDAWGMap.KEY_VALUE_SEPARATOR ? 1 : countKeys(transition.getValue(), keyCounts);
+            keyCounts.put(node.getStateKey(), ret = count);
+        }
+        return ret;
+    }
+
+    /**
+     * Counts the words that can be built by transition paths starting from a given node.
+     * The results are memoized for every visited node, so it takes time proportional to the quantity of nodes
+     * rather than to the quantity of words.
+     
+     * @param node          a node of this DAWG
+     * @param counts        quantities of words by state keys of the nodes memoized during a single query
+     * @return              quantity of words in the right language of {@code node}
+     */
+    int countWords(DAWGNode node, Map<Long, Integer> counts) {
+        long key = node.getStateKey();
+        Integer ret = counts.get(key);
+        if (ret == null) {
+            int s = node.isAcceptNode() ? 1 : 0;
+            for (SimpleEntry<Character, DAWGNode> transition : getOutgoingTransitions(node))
+                s += countWords(transition.getValue(), counts);
+            counts.put(key, ret = s);
+        }
+        return ret;
+    }
+    
+    /**
+     * Counts the words that are less than (or equal to) a given String.
+     */
+    private int countLowerWords(String str, boolean inclusive, Map<Long, Integer> counts) {
+        DAWGNode node = getSourceNode();
+        int ret = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            //A word that is a proper prefix of str is less than str.
+            if (node.isAcceptNode())
+                ret++;
+            for (SimpleEntry<Character, DAWGNode> transition : getOutgoingTransitions(node)) {
+                if (transition.getKey() >= c)
+                    break;
+                ret += countWords(transition.getValue(), counts);
+            }
+            node = node.transition(c);
+            if (node == null)
+                return ret;
+        }
+        if (inclusive && node.isAcceptNode())
+            ret++;
+        return ret;
+    }
+    
+    /**
+     * Counts the words starting with a given prefix and lying in a given range without enumerating them.
+     * Bounds are handled the same way as in {@link #getStrings}.
+     
+     * @return quantity of matching words, or -1 if this DAWG doesn't expose its nodes
+     */
+    int countStrings(String prefixString, String fromString, boolean inclFrom, String toString, boolean inclTo) {
+        DAWGNode source = getSourceNode();
+        if (source == null)
+            return -1;
+        Map<Long, Integer> counts = new HashMap<Long, Integer>();
+        if (prefixString == null)
+            prefixString = "";
+        DAWGNode prefixNode = source.transition(prefixString);
+        if (prefixNode == null)
+            return 0;
+        //Words starting with the prefix occupy a contiguous range of positions in the sorted order.
+        int lo = countLowerWords(prefixString, false, counts);
+        int hi = lo + countWords(prefixNode, counts);
+        if (fromString != null)
+            lo = Math.max(lo, countLowerWords(fromString, !inclFrom, counts));
+        if (toString != null)
+            hi = Math.min(hi, countLowerWords(toString, inclTo, counts));
+        return Math.max(0, hi - lo);
+    }
+    
     public Iterable<String> getStrings(final String prefixString, final String subString, final String suffixString, final boolean descending, final String fromString, final boolean inclFrom, final String toString, final boolean inclTo) {
+        final DAWGSet reversedWords = getReversedWords();
+        if (suffixString != null && !suffixString.isEmpty() && reversedWords != null && (prefixString == null || prefixString.isEmpty())) {
+            // Suffix search as a prefix search in the DAWG of reversed words.
+            return new Iterable<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    final Iterator<String> it = reversedWords.getStrings(reverse(suffixString), subString == null ? null : reverse(subString), null, descending, null, false, null, false).iterator();
+                    return new LookaheadIterator<String>() {
+                        @Override
+                        public String nextElement() {
+                            while (it.hasNext()) {
+                                String word = reverse(it.next());
+                                if (fromString != null) {
+                                    int cmp = word.compareTo(fromString);
+                                    if (cmp < 0 || cmp == 0 && !inclFrom)
+                                        continue;
+                                }
+                                if (toString != null) {
+                                    int cmp = word.compareTo(toString);
+                                    if (cmp > 0 || cmp == 0 && !inclTo)
+                                        continue;
+                                }
+                                return word;
+                            }
+                            throw NO_SUCH_ELEMENT_EXCEPTION;
+                        }
+
+                        @Override
+                        public void remove(String word) {
+                            DAWGSet.this.remove(word);
+                        }
+                    };
+                }
+            };
+        }
         if (suffixString != null && !suffixString.isEmpty() && isWithIncomingTransitions() && (prefixString == null || prefixString.isEmpty())) {
             // Suffix search.
             return new Iterable<String>() {
@@ -269,10 +480,12 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                 public Iterator<String> iterator() {
                     return new LookaheadIterator<String>() {
                         private char buffer[];
-                        private Deque<Character> charsStack;
-                        private Deque<Integer> levelsStack;
-                        private Deque<Boolean> checkSubStack;
-                        private final Deque<DAWGNode> stack = new ArrayDeque<DAWGNode>();
+                        // Work stack: nodes, their levels with the substring check flag in the lowest bit,
+                        // and the letters of the transitions leading to them.
+                        private DAWGNode stack[] = new DAWGNode[16];
+                        private int levelsStack[] = new int[16];
+                        private char charsStack[] = new char[16];
+                        private int stackSize;
                         private char from[];
                         private char to[];
                         private char sub[];
@@ -282,12 +495,8 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                             if (!originNodes.isEmpty()) {
                                 buffer = new char[getMaxLength()];
                                 System.arraycopy(suffixString.toCharArray(), 0, buffer, buffer.length - suffixString.length(), suffixString.length());
-                                stack.addAll(originNodes);
-                                checkSubStack = new ArrayDeque<Boolean>();
-                                checkSubStack.addAll(Collections.nCopies(originNodes.size(), true));
-                                levelsStack = new ArrayDeque<Integer>();
-                                levelsStack.addAll(Collections.nCopies(originNodes.size(), suffixString.length()));
-                                charsStack = new ArrayDeque<Character>();
+                                for (DAWGNode node : originNodes)
+                                    push(node, suffixString.length(), '\0', true);
                                 if (subString != null && !subString.isEmpty() && !suffixString.contains(subString))
                                     sub = subString.toCharArray();
                                 if (fromString != null && (!inclFrom || !fromString.isEmpty()))
@@ -297,19 +506,30 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                             }
                         }
                         
+                        private void push(DAWGNode node, int level, char c, boolean checkSub) {
+                            if (stackSize == stack.length) {
+                                stack = Arrays.copyOf(stack, stackSize << 1);
+                                levelsStack = Arrays.copyOf(levelsStack, stackSize << 1);
+                                charsStack = Arrays.copyOf(charsStack, stackSize << 1);
+                            }
+                            stack[stackSize] = node;
+                            levelsStack[stackSize] = level << 1 | (checkSub ? 1 : 0);
+                            charsStack[stackSize++] = c;
+                        }
+                        
                         @Override
                         public String nextElement() {
                             while (true) {
-                                DAWGNode node = stack.pollLast();
-                                if (node == null)
+                                if (stackSize == 0)
                                     throw NO_SUCH_ELEMENT_EXCEPTION;
-                                int level = levelsStack.pollLast();
+                                stackSize--;
+                                DAWGNode node = stack[stackSize];
+                                stack[stackSize] = null;
+                                int level = levelsStack[stackSize] >>> 1;
                                 int currentCharPos = buffer.length - level;
-                                if (level > suffixString.length()) {
-                                    char c = charsStack.pollLast();
-                                    buffer[currentCharPos] = c;
-                                }
-                                boolean checkSub = checkSubStack.pollLast();
+                                if (level > suffixString.length())
+                                    buffer[currentCharPos] = charsStack[stackSize];
+                                boolean checkSub = (levelsStack[stackSize] & 1) != 0;
                                 boolean skipCurrent = false;
                                 if (checkSub && sub != null) {
                                     skipCurrent = level < sub.length;
@@ -327,11 +547,9 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                                 if (descending)
                                     childrenMap = childrenMap.descendingMap();
                                 for (Map.Entry<Character, Collection<? extends DAWGNode>> e : childrenMap) {
-                                    Collection<? extends DAWGNode> children = e.getValue();
-                                    stack.addAll(children);
-                                    charsStack.addAll(Collections.nCopies(children.size(), e.getKey()));
-                                    levelsStack.addAll(Collections.nCopies(children.size(), level + 1));
-                                    checkSubStack.addAll(Collections.nCopies(children.size(), checkSub));
+                                    char c = e.getKey();
+                                    for (DAWGNode child : e.getValue())
+                                        push(child, level + 1, c, checkSub);
                                 }
                                 if (!skipCurrent && childrenMap.isEmpty()) {
                                     if (from != null) {
@@ -386,11 +604,13 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                     private Deque<Character> charsStack;
                     private Deque<Integer> levelsStack;
                     private Deque<Integer> flagsStack;
+                    private Deque<Integer> matchStack;
+                    private Deque<Integer> suffixMatchStack;
                     private Deque<DAWGNode> stack;
+                    private SubstringSearch substringSearch;
+                    private SubstringSearch suffixSearch;
                     private char from[];
                     private char to[];
-                    private char sub[];
-                    private char suffix[];
                     
                     {
                         init(fromString, inclFrom, toString, inclTo);
@@ -433,6 +653,21 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                         if (originNode != null && subStr != null) {
                             if (subStr.isEmpty() || prefixStr.contains(subStr) || suffixString != null && suffixString.contains(subStr))
                                 subStr = null;
+                            else {
+                                if (substringSearch == null)
+                                    substringSearch = new SubstringSearch(DAWGSet.this, subStr, false);
+                                // No words containing substring are reachable.
+                                if (!substringSearch.isPossible(originNode, substringSearch.next(0, prefixStr)))
+                                    originNode = null;
+                            }
+                        }
+                        boolean checkSuffix = suffixString != null && !suffixString.isEmpty();
+                        if (originNode != null && checkSuffix) {
+                            if (suffixSearch == null)
+                                suffixSearch = new SubstringSearch(DAWGSet.this, suffixString, true);
+                            // No words ending with suffix are reachable.
+                            if (!suffixSearch.isPossible(originNode, suffixSearch.next(0, prefixStr)))
+                                originNode = null;
                         }
                         //if there a transition path corresponding to prefixString (one or more stored Strings begin with prefixString)
                         if (originNode != null) {
@@ -443,22 +678,27 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                             levelsStack.add(prefixStr.length() - 1);
                             charsStack = new ArrayDeque<Character>();
                             flagsStack = new ArrayDeque<Integer>();
-                            flagsStack.add(encodeFlags(true, true, true));
+                            flagsStack.add(encodeFlags(true, true));
+                            matchStack = null;
+                            if (subStr != null) {
+                                matchStack = new ArrayDeque<Integer>();
+                                matchStack.add(substringSearch.next(0, prefixStr));
+                            }
+                            suffixMatchStack = null;
+                            if (checkSuffix) {
+                                suffixMatchStack = new ArrayDeque<Integer>();
+                                suffixMatchStack.add(suffixSearch.next(0, prefixStr));
+                            }
                             if (fromStr != null && (!inclFrom || !fromStr.isEmpty()))
                                 from = fromStr.toCharArray();
                             if (toStr != null)
                                 to = toStr.toCharArray();
-                            if (subStr != null)
-                                sub = subStr.toCharArray();
-                            if (suffixString != null && !suffixString.isEmpty())
-                                suffix = suffixString.toCharArray();
                         }
                     }
                     
-                    private int encodeFlags(boolean checkFrom, boolean checkTo, boolean checkSubstring) {
+                    private int encodeFlags(boolean checkFrom, boolean checkTo) {
                         return (checkFrom ? 1 : 0) |
-                               (checkTo ? 2 : 0) |
-                               (checkSubstring ? 4 : 0);
+                               (checkTo ? 2 : 0);
                     }
                     
                     private void clearStacks() {
@@ -466,6 +706,10 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                         charsStack.clear();
                         levelsStack.clear();
                         flagsStack.clear();
+                        if (matchStack != null)
+                            matchStack.clear();
+                        if (suffixMatchStack != null)
+                            suffixMatchStack.clear();
                     }
                     
                     @Override
@@ -482,7 +726,8 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                             int flags = flagsStack.pollLast();
                             boolean checkFrom = (flags & 1) != 0;
                             boolean checkTo = (flags & 2) != 0;
-                            boolean checkSubstring = (flags & 4) != 0;
+                            int matchState = matchStack == null ? 0 : matchStack.pollLast();
+                            int suffixMatchState = suffixMatchStack == null ? 0 : suffixMatchStack.pollLast();
                             boolean skipCurrentString = false;
                             boolean skipChildren = false;
                             if (from != null && checkFrom) {
@@ -585,21 +830,8 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                                         skipChildren = true;
                                 }
                             }
-                            if (sub != null && checkSubstring) {
-                                boolean endsWithSub = level >= sub.length - 1;
-                                if (endsWithSub) {
-                                    for (int i = 0; i < sub.length; i++) {
-                                        if (sub[i] != buffer[level - sub.length + 1 + i]) {
-                                            endsWithSub = false;
-                                            break;
-                                        }
-                                    }
-                                }
-                                if (endsWithSub)
-                                    checkSubstring = false;
-                                else
-                                    skipCurrentString = true;
-                            }
+                            if (matchStack != null && !substringSearch.isFound(matchState))
+                                skipCurrentString = true;
                             boolean retCurrentString = false;
                             if (node.isAcceptNode() && !skipCurrentString) {
                                 // Natural ordering: return short string immediately then process all strings starting with it.
@@ -612,20 +844,15 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                                     stack.add(getEmptyNode());
                                     levelsStack.add(level);
                                     charsStack.add(letter);
-                                    flagsStack.add(encodeFlags(checkFrom, checkTo, checkSubstring));
-                                }
-                            }
-                            if (retCurrentString && suffix != null) {
-                                retCurrentString = level >= suffix.length - 1;
-                                if (retCurrentString) {
-                                    for (int i = 0; i < suffix.length; i++) {
-                                        if (suffix[i] != buffer[level - suffix.length + 1 + i]) {
-                                            retCurrentString = false;
-                                            break;
-                                        }
-                                    }
+                                    flagsStack.add(encodeFlags(checkFrom, checkTo));
+                                    if (matchStack != null)
+                                        matchStack.add(matchState);
+                                    if (suffixMatchStack != null)
+                                        suffixMatchStack.add(suffixMatchState);
                                 }
                             }
+                            if (retCurrentString && suffixMatchStack != null)
+                                retCurrentString = suffixSearch.isFound(suffixMatchState);
                             level++;
                             if (!skipChildren) {
                                 // This is not a typo. When we need natural ordering, we have to add nodes to stack in reverse order.
@@ -633,10 +860,27 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
                                 if (!descending)
                                     childrenMap = childrenMap.descendingMap();
                                 for (Map.Entry<Character, DAWGNode> e : childrenMap) {
+                                    // Skip the children from which no matching words are reachable.
+                                    int childMatchState = 0;
+                                    if (matchStack != null) {
+                                        childMatchState = substringSearch.next(matchState, e.getKey());
+                                        if (!substringSearch.isPossible(e.getValue(), childMatchState))
+                                            continue;
+                                    }
+                                    int childSuffixMatchState = 0;
+                                    if (suffixMatchStack != null) {
+                                        childSuffixMatchState = suffixSearch.next(suffixMatchState, e.getKey());
+                                        if (!suffixSearch.isPossible(e.getValue(), childSuffixMatchState))
+                                            continue;
+                                    }
                                     stack.add(e.getValue());
                                     levelsStack.add(level);
                                     charsStack.add(e.getKey());
-                                    flagsStack.add(encodeFlags(checkFrom, checkTo, checkSubstring));
+                                    flagsStack.add(encodeFlags(checkFrom, checkTo));
+                                    if (matchStack != null)
+                                        matchStack.add(childMatchState);
+                                    if (suffixMatchStack != null)
+                                        suffixMatchStack.add(childSuffixMatchState);
                                 }
                             }
                             if (retCurrentString)
@@ -841,7 +1085,222 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
         return new SubSet(prefix, false, null, false, null, false);
     }
     
-    private class SubSet extends AbstractSet<String> implements NavigableSet<String>, StringsFilter {
+    /**
+     * Splits the words starting with a given prefix into contiguous ranges that may be processed independently,
+     * e.g. by several threads. The graph is split at its branch points: the largest range is divided
+     * by the outgoing transitions of its node until there are at least {@code parts} ranges or no range can be divided.
+     * Sizes of ranges are calculated from the quantities of words reachable from the nodes,
+     * which are cached for immutable DAWGs.
+     
+     * @param prefix        a String that is the prefix for all the words to split
+     * @param parts         a desired quantity of ranges
+     * @return              ranges in ascending order, together they contain all the words of {@code prefixSet(prefix)}
+     */
+    public List<NavigableSet<String>> split(String prefix, int parts) {
+        if (prefix == null)
+            prefix = "";
+        List<NavigableSet<String>> ret = new ArrayList<NavigableSet<String>>();
+        List<SplitRange> ranges = splitRanges(prefix, parts);
+        if (ranges == null) {
+            ret.add(prefixSet(prefix));
+            return ret;
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            String from = i == 0 ? null : ranges.get(i).prefix;
+            String to = i == ranges.size() - 1 ? null : ranges.get(i + 1).prefix;
+            SubSet subSet = new SubSet(prefix, false, from, true, to, false);
+            if (isImmutable())
+                subSet.size = ranges.get(i).size;
+            ret.add(subSet);
+        }
+        return ret;
+    }
+    
+    /**
+     * Splits the words starting with a given prefix into ranges, see {@link #split}.
+     * Every range consists either of all the words starting with its prefix, or of its prefix only.
+     
+     * @return ranges in ascending order, or null if this DAWG doesn't expose its nodes or doesn't contain the prefix
+     */
+    private List<SplitRange> splitRanges(String prefix, int parts) {
+        DAWGNode source = getSourceNode();
+        DAWGNode prefixNode = source == null ? null : source.transition(prefix);
+        if (prefixNode == null)
+            return null;
+        Map<Long, Integer> counts = new HashMap<Long, Integer>();
+        List<SplitRange> ranges = new ArrayList<SplitRange>();
+        ranges.add(new SplitRange(prefix, prefixNode, counts));
+        while (ranges.size() < parts) {
+            int largest = -1;
+            for (int i = 0; i < ranges.size(); i++) {
+                SplitRange range = ranges.get(i);
+                if (range.size > 1 && (largest < 0 || range.size > ranges.get(largest).size))
+                    largest = i;
+            }
+            if (largest < 0)
+                break;
+            //The word of the divided node (if any) becomes a range on its own.
+            SplitRange range = ranges.remove(largest);
+            int i = largest;
+            if (range.node.isAcceptNode())
+                ranges.add(i++, new SplitRange(range.prefix, null, counts));
+            for (SimpleEntry<Character, DAWGNode> transition : getOutgoingTransitions(range.node))
+                ranges.add(i++, new SplitRange(range.prefix + transition.getKey(), transition.getValue(), counts));
+        }
+        return ranges;
+    }
+    
+    /**
+     * A range of words starting with a given String. If the node is null then the range consists of that String only.
+     */
+    private class SplitRange {
+        final String prefix;
+        final DAWGNode node;
+        final int size;
+
+        SplitRange(String prefix, DAWGNode node, Map<Long, Integer> counts) {
+            this.prefix = prefix;
+            this.node = node;
+            size = node == null ? 1 : countWords(node, counts);
+        }
+        
+        List<String> getStrings(String subString, String suffixString) {
+            List<String> ret = new ArrayList<String>();
+            if (node == null) {
+                if ((subString == null || prefix.contains(subString)) && (suffixString == null || prefix.endsWith(suffixString)))
+                    ret.add(prefix);
+            } else {
+                for (String word : DAWGSet.this.getStrings(prefix, subString, suffixString, false, null, false, null, false))
+                    ret.add(word);
+                //Suffix search over incoming transitions doesn't keep the order.
+                if (prefix.isEmpty() && suffixString != null && !suffixString.isEmpty())
+                    Collections.sort(ret);
+            }
+            return ret;
+        }
+    }
+    
+    /**
+     * Retrieves all the Strings in the DAWGSet that contain a given String using several threads.
+     
+     * @param str           a String that is contained in all the desired Strings
+     * @param executor      an executor to run the search with
+     * @param ordered       a flag indicating that the result should be sorted
+     * @return              an Iterable of all the Strings present in the DAWGSet that contain {@code str}
+     * @see #getStrings(String, String, String, int, ExecutorService, boolean)
+     */
+    public Iterable<String> getStringsWithSubstring(String str, ExecutorService executor, boolean ordered) {
+        return getStrings("", str, null, getDefaultParallelism(), executor, ordered);
+    }
+    
+    /**
+     * Retrieves all the Strings in the DAWGSet that end with a given String using several threads.
+     
+     * @param suffixStr     a String that is the suffix for all the desired Strings
+     * @param executor      an executor to run the search with
+     * @param ordered       a flag indicating that the result should be sorted
+     * @return              an Iterable of all the Strings present in the DAWGSet that end with {@code suffixStr}
+     * @see #getStrings(String, String, String, int, ExecutorService, boolean)
+     */
+    public Iterable<String> getStringsEndingWith(String suffixStr, ExecutorService executor, boolean ordered) {
+        return getStrings("", null, suffixStr, getDefaultParallelism(), executor, ordered);
+    }
+    
+    private static int getDefaultParallelism() {
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+    
+    /**
+     * Searches the Strings using several threads. The words starting with {@code prefixString} are split
+     * at the branch points of the graph into ranges (see {@link #split}), every range is searched by a separate task.
+     * Ranges are searched by the forward traversal, so this is useful mostly for substring queries
+     * and for suffix queries in DAWGs without incoming transitions.<br>
+     * The search starts when an iterator is requested. Results of every range are collected in memory.
+     * The DAWG should not be modified while the search is running.
+     
+     * @param prefixString  a String that is the prefix for all the desired Strings
+     * @param subString     a String that is contained in all the desired Strings, or null
+     * @param suffixString  a String that is the suffix for all the desired Strings, or null
+     * @param parts         a desired quantity of tasks
+     * @param executor      an executor to run the tasks with
+     * @param ordered       if true then the results are returned in ascending order,
+     *                      otherwise the results of every range are returned as soon as the range is searched
+     * @return              an Iterable of matching Strings
+     */
+    public Iterable<String> getStrings(final String prefixString, final String subString, final String suffixString, final int parts, final ExecutorService executor, final boolean ordered) {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                final String prefix = prefixString == null ? "" : prefixString;
+                final List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+                final CompletionService<List<String>> completionService = new ExecutorCompletionService<List<String>>(executor);
+                List<SplitRange> ranges = getSourceNode() == null ? null : splitRanges(prefix, parts);
+                if (ranges == null) {
+                    //Nothing to split, the whole query is a single task.
+                    futures.add(completionService.submit(new Callable<List<String>>() {
+                        @Override
+                        public List<String> call() {
+                            List<String> ret = new ArrayList<String>();
+                            for (String word : DAWGSet.this.getStrings(prefix, subString, suffixString, false, null, false, null, false))
+                                ret.add(word);
+                            if (ordered && prefix.isEmpty() && suffixString != null && !suffixString.isEmpty())
+                                Collections.sort(ret);
+                            return ret;
+                        }
+                    }));
+                } else {
+                    for (final SplitRange range : ranges) {
+                        futures.add(completionService.submit(new Callable<List<String>>() {
+                            @Override
+                            public List<String> call() {
+                                return range.getStrings(subString, suffixString);
+                            }
+                        }));
+                    }
+                }
+                return new LookaheadIterator<String>() {
+                    private int finished;
+                    private Iterator<String> it;
+
+                    @Override
+                    public String nextElement() {
+                        while (it == null || !it.hasNext()) {
+                            if (finished == futures.size())
+                                throw NO_SUCH_ELEMENT_EXCEPTION;
+                            try {
+                                it = (ordered ? futures.get(finished) : completionService.take()).get().iterator();
+                                finished++;
+                            } catch (InterruptedException e) {
+                                cancel();
+                                Thread.currentThread().interrupt();
+                                throw new RuntimeException(e);
+                            } catch (ExecutionException e) {
+                                cancel();
+                                if (e.getCause() instanceof RuntimeException)
+                                    throw (RuntimeException)e.getCause();
+                                if (e.getCause() instanceof Error)
+                                    throw (Error)e.getCause();
+                                throw new RuntimeException(e.getCause());
+                            }
+                        }
+                        return it.next();
+                    }
+
+                    private void cancel() {
+                        for (Future<List<String>> future : futures)
+                            future.cancel(true);
+                    }
+
+                    @Override
+                    public void remove(String word) {
+                        DAWGSet.this.remove(word);
+                    }
+                };
+            }
+        };
+    }
+    
+    class SubSet extends AbstractSet<String> implements NavigableSet<String>, StringsFilter {
         private final String prefix;
         private final boolean desc;
         private final String from;
@@ -947,6 +1406,15 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
         public NavigableSet<String> descendingSet() {
             return new SubSet(prefix, !desc, from, inclFrom, to, inclTo);
         }
+        
+        /**
+         * Creates an empty view of this DAWG that rejects every element: nothing lies between
+         * the exclusive bounds "" and "".
+         * @return an empty subset whose {@code add} fails like the one of this subset for an element out of range
+         */
+        NavigableSet<String> emptySubSet() {
+            return new SubSet(prefix, desc, "", false, "", false);
+        }
 
         @Override
         public NavigableSet<String> subSet(String fromElement, boolean fromInclusive, String toElement, boolean toInclusive) {
@@ -1041,9 +1509,12 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
         @Override
         public int size() {
             if (size < 0) {
-                int s = 0;
-                for (String word : this)
-                    s++;
+                int s = countStrings(prefix, from, inclFrom, to, inclTo);
+                if (s < 0) {
+                    s = 0;
+                    for (String word : this)
+                        s++;
+                }
                 if (isImmutable())
                     size = s;
                 else
@@ -1073,7 +1544,7 @@ public abstract class DAWGSet extends AbstractSet<String> implements NavigableSe
             return true;
         }
         
-        private boolean inRange(String s, boolean inclusive) {
+        boolean inRange(String s, boolean inclusive) {
             if (inclusive)
                 return inRange(s);
             return s.startsWith(prefix) &&
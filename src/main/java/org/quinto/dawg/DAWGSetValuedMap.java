@@ -40,8 +40,13 @@ public class DAWGSetValuedMap {
         return mapOfSets.containsMapping(key, value);
     }
     
-    // TODO: implement NavigableSet interface.
-    public Set<String> get(String key) {
+    /**
+     * Returns a view of the values of a key. The view is backed by the DAWG, so it is navigable
+     * and its size is counted without enumerating the values.
+     * @param key   a key
+     * @return      a set of the values of {@code key} in ascending order
+     */
+    public NavigableSet<String> get(String key) {
         return mapOfSets.get(key);
     }
     
@@ -97,6 +102,15 @@ public class DAWGSetValuedMap {
         return mapOfSets.keys();
     }
     
+    /**
+     * Creates an immutable copy of this map that stores the values of every key as a compressed list of value ids,
+     * see {@link CompressedDAWGPostingsMap}.
+     * @return a map containing the same mappings as this map
+     */
+    public CompressedDAWGPostingsMap compressPostings() {
+        return new CompressedDAWGPostingsMap(this);
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
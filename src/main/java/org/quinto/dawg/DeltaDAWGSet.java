@@ -0,0 +1,413 @@
+package org.quinto.dawg;
+
+import org.quinto.dawg.util.LookaheadIterator;
+import org.quinto.dawg.util.SemiNavigableMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.quinto.dawg.util.UnmodifiableNavigableSet;
+
+/**
+ * A modifiable DAWG that keeps most of its words in an immutable {@link CompressedDAWGSet} base.
+ * Added words are kept in a small DAWG of additions, removed words of the base are kept in a DAWG of tombstones.
+ * All the queries merge these three layers.<br>
+ * {@link #compact} re-compresses the layers into a new base and swaps it in atomically.
+ * It can be called periodically by a background thread started with {@link #startCompaction}.<br>
+ * Readers never lock: each query works on the layers that were current when the query started.
+ * Modifications are serialized by the monitor of this set.
+ */
+public class DeltaDAWGSet extends DAWGSet {
+    private volatile Layers layers;
+
+    //Writable layers. Guarded by this.
+    private PersistentDAWGSet additions = new PersistentDAWGSet();
+    private PersistentDAWGSet tombstones = new PersistentDAWGSet();
+
+    //Only one compaction may run at a time.
+    private final Object compactionLock = new Object();
+
+    private ScheduledExecutorService compactionExecutor;
+
+    /**
+     * Creates an empty DAWG with incoming transitions for fast suffix search.
+     */
+    public DeltaDAWGSet() {
+        this(new ModifiableDAWGSet().compress());
+    }
+
+    /**
+     * Creates a DAWG from an iterable of Strings with incoming transitions for fast suffix search.
+     * @param strCollection     an {@link java.util.Iterable} containing Strings that the DAWG will contain
+     */
+    public DeltaDAWGSet(Iterable<? extends String> strCollection) {
+        this(new ModifiableDAWGSet(strCollection).compress());
+    }
+
+    /**
+     * Creates a DAWG on top of a given base.
+     * @param base      a DAWG containing the initial words
+     */
+    public DeltaDAWGSet(CompressedDAWGSet base) {
+        layers = new Layers(base, additions.snapshot(), tombstones.snapshot());
+    }
+
+    private void publish(CompressedDAWGSet base) {
+        layers = new Layers(base, additions.snapshot(), tombstones.snapshot());
+    }
+
+    /**
+     * Returns the quantity of words that are kept outside of the compressed base.
+     * @return quantity of added words and tombstones
+     */
+    public int getDeltaSize() {
+        Layers l = layers;
+        return l.additions.size() + l.tombstones.size();
+    }
+
+    /**
+     * Re-compresses all the words into a new base and swaps it in.
+     * Modifications are not blocked while the new base is being built:
+     * the ones made during compaction are moved on top of the new base.
+     * If the set is cleared during compaction, the new base is dropped.
+     * @return true if a new base was swapped in
+     */
+    public boolean compact() {
+        synchronized (compactionLock) {
+            Layers old = layers;
+            if (old.additions.isEmpty() && old.tombstones.isEmpty())
+                return false;
+            CompressedDAWGSet newBase = new ModifiableDAWGSet(old.base.isWithIncomingTransitions(), old).compress();
+            synchronized (this) {
+                Layers current = layers;
+                // The base was replaced by clear(): the new base contains words that are no longer in the set.
+                if (current.base != old.base)
+                    return false;
+                PersistentDAWGSet newAdditions = new PersistentDAWGSet();
+                PersistentDAWGSet newTombstones = new PersistentDAWGSet();
+                // Only the words that were in delta layers before or after the build may differ from the new base.
+                rebase(old.additions, current, newBase, newAdditions, newTombstones);
+                rebase(old.tombstones, current, newBase, newAdditions, newTombstones);
+                rebase(current.additions, current, newBase, newAdditions, newTombstones);
+                rebase(current.tombstones, current, newBase, newAdditions, newTombstones);
+                additions = newAdditions;
+                tombstones = newTombstones;
+                publish(newBase);
+            }
+            return true;
+        }
+    }
+
+    private static void rebase(Iterable<String> words, Layers current, CompressedDAWGSet newBase, PersistentDAWGSet newAdditions, PersistentDAWGSet newTombstones) {
+        for (String word : words) {
+            boolean present = current.contains(word);
+            if (present != newBase.contains(word)) {
+                if (present)
+                    newAdditions.add(word);
+                else
+                    newTombstones.add(word);
+            }
+        }
+    }
+
+    /**
+     * Starts a daemon thread that calls {@link #compact} periodically.
+     * @param period        the period between compactions
+     * @param unit          the time unit of {@code period}
+     */
+    public synchronized void startCompaction(long period, TimeUnit unit) {
+        if (compactionExecutor != null)
+            throw new IllegalStateException("Compaction is already started");
+        compactionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "DeltaDAWGSet compaction");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the thread started by {@link #startCompaction}.
+     */
+    public synchronized void stopCompaction() {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+            compactionExecutor = null;
+        }
+    }
+
+    /**
+     * Creates a space-saving version of this DAWG.
+     * @return an instance of {@link CompressedDAWGSet} containing all the words of this DAWG
+     */
+    public CompressedDAWGSet compress() {
+        Layers l = layers;
+        if (l.additions.isEmpty() && l.tombstones.isEmpty())
+            return l.base;
+        return new ModifiableDAWGSet(l.base.isWithIncomingTransitions(), l).compress();
+    }
+
+    @Override
+    public synchronized boolean add(String str) {
+        Layers l = layers;
+        if (tombstones.remove(str)) {
+            publish(l.base);
+            return true;
+        }
+        if (additions.contains(str) || l.base.contains(str))
+            return false;
+        additions.add(str);
+        publish(l.base);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Iterable<? extends String> c) {
+        boolean ret = false;
+        for (String s : c)
+            ret |= add(s);
+        return ret;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+        return addAll((Iterable<? extends String>)c);
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        String str = (String)o;
+        Layers l = layers;
+        if (additions.remove(str)) {
+            publish(l.base);
+            return true;
+        }
+        if (l.base.contains(str) && tombstones.add(str)) {
+            publish(l.base);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        CompressedDAWGSet empty = new ModifiableDAWGSet(layers.base.isWithIncomingTransitions()).compress();
+        synchronized (this) {
+            additions = new PersistentDAWGSet();
+            tombstones = new PersistentDAWGSet();
+            publish(empty);
+        }
+    }
+
+    @Override
+    public boolean contains(Object str) {
+        return layers.contains((String)str);
+    }
+
+    @Override
+    public int size() {
+        return layers.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return layers.size() == 0;
+    }
+
+    @Override
+    public Iterable<String> getStrings(String prefixString, String subString, String suffixString, boolean descending, String fromString, boolean inclFrom, String toString, boolean inclTo) {
+        return layers.getStrings(prefixString, subString, suffixString, descending, fromString, inclFrom, toString, inclTo);
+    }
+
+    @Override
+    public String determineLongestPrefixInDAWG(String str) {
+        Layers l = layers;
+        // A prefix of a word is a prefix of a shorter prefix too, so the longest one can be found by a binary search.
+        int lo = 0;
+        int hi = str.length();
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (l.getStrings(str.substring(0, mid), null, null, false, null, false, null, false).iterator().hasNext())
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return str.substring(0, lo);
+    }
+
+    @Override
+    public String toGraphViz(boolean withNodeIds, boolean withIncomingTransitions) {
+        return compress().toGraphViz(withNodeIds, withIncomingTransitions);
+    }
+
+    @Override
+    public boolean isWithIncomingTransitions() {
+        return layers.base.isWithIncomingTransitions();
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return false;
+    }
+
+    /**
+     * Returns the quantity of transitions in all the layers of this DAWG.
+     * @return quantity of transitions
+     */
+    @Override
+    public int getTransitionCount() {
+        Layers l = layers;
+        return l.base.getTransitionCount() + l.additions.getTransitionCount() + l.tombstones.getTransitionCount();
+    }
+
+    /**
+     * Returns the quantity of nodes in all the layers of this DAWG.
+     * @return quantity of nodes
+     */
+    @Override
+    public int getNodeCount() {
+        Layers l = layers;
+        return l.base.getNodeCount() + l.additions.getNodeCount() + l.tombstones.getNodeCount();
+    }
+
+    @Override
+    public NavigableSet<Character> getAlphabet() {
+        Layers l = layers;
+        NavigableSet<Character> alphabet = new TreeSet<Character>(l.base.getAlphabet());
+        alphabet.addAll(l.additions.getAlphabet());
+        return new UnmodifiableNavigableSet<Character>(alphabet);
+    }
+
+    @Override
+    int getMaxLength() {
+        Layers l = layers;
+        return Math.max(l.base.getMaxLength(), l.additions.getMaxLength());
+    }
+
+    @Override
+    SemiNavigableMap<Character, DAWGNode> getOutgoingTransitions(DAWGNode parent) {
+        return null;
+    }
+
+    @Override
+    SemiNavigableMap<Character, Collection<? extends DAWGNode>> getIncomingTransitions(DAWGNode parent) {
+        return null;
+    }
+
+    @Override
+    DAWGNode getSourceNode() {
+        return null;
+    }
+
+    @Override
+    DAWGNode getEndNode() {
+        return null;
+    }
+
+    @Override
+    DAWGNode getEmptyNode() {
+        return null;
+    }
+
+    @Override
+    Collection<? extends DAWGNode> getNodesBySuffix(String suffix) {
+        return null;
+    }
+
+    /**
+     * An immutable state of the layers. Base words that have tombstones are not contained in the set,
+     * additions and base are disjoint.
+     */
+    private final class Layers implements Iterable<String> {
+        final CompressedDAWGSet base;
+        final PersistentDAWGSet additions;
+        final PersistentDAWGSet tombstones;
+
+        Layers(CompressedDAWGSet base, PersistentDAWGSet additions, PersistentDAWGSet tombstones) {
+            this.base = base;
+            this.additions = additions;
+            this.tombstones = tombstones;
+        }
+
+        boolean contains(String str) {
+            return additions.contains(str) || base.contains(str) && !tombstones.contains(str);
+        }
+
+        int size() {
+            return base.size() - tombstones.size() + additions.size();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return getStrings("", null, null, false, null, false, null, false).iterator();
+        }
+
+        Iterable<String> getStrings(final String prefixString, final String subString, final String suffixString, final boolean descending, final String fromString, final boolean inclFrom, final String toString, final boolean inclTo) {
+            final Iterable<String> baseStrings = base.getStrings(prefixString, subString, suffixString, descending, fromString, inclFrom, toString, inclTo);
+            final Iterable<String> addedStrings = additions.getStrings(prefixString, subString, suffixString, descending, fromString, inclFrom, toString, inclTo);
+            // Suffix search over incoming transitions doesn't keep the order, so the layers are just concatenated.
+            final boolean ordered = suffixString == null || suffixString.isEmpty() || prefixString != null && !prefixString.isEmpty() || !base.isWithIncomingTransitions();
+            return new Iterable<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new LookaheadIterator<String>() {
+                        private final Iterator<String> baseIt = baseStrings.iterator();
+                        private final Iterator<String> addedIt = addedStrings.iterator();
+                        private String baseNext = nextBase();
+                        private String addedNext = addedIt.hasNext() ? addedIt.next() : null;
+
+                        private String nextBase() {
+                            while (baseIt.hasNext()) {
+                                String s = baseIt.next();
+                                if (!tombstones.contains(s))
+                                    return s;
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public String nextElement() {
+                            if (baseNext == null && addedNext == null)
+                                throw NO_SUCH_ELEMENT_EXCEPTION;
+                            boolean takeBase;
+                            if (baseNext == null)
+                                takeBase = false;
+                            else if (addedNext == null || !ordered)
+                                takeBase = true;
+                            else {
+                                int cmp = baseNext.compareTo(addedNext);
+                                takeBase = descending ? cmp > 0 : cmp < 0;
+                            }
+                            String ret;
+                            if (takeBase) {
+                                ret = baseNext;
+                                baseNext = nextBase();
+                            } else {
+                                ret = addedNext;
+                                addedNext = addedIt.hasNext() ? addedIt.next() : null;
+                            }
+                            return ret;
+                        }
+
+                        @Override
+                        public void remove(String word) {
+                            DeltaDAWGSet.this.remove(word);
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
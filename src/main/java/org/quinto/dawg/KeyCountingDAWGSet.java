@@ -0,0 +1,79 @@
+package org.quinto.dawg;
+
+/**
+ * A ModifiableDAWGSet of the words {@code key + KEY_VALUE_SEPARATOR + value} of a {@link ModifiableDAWGMapOfStringSets}.
+ * It keeps the quantity of keys up to date on every modification, so it is never counted by a traversal.
+ * A key is added with the first separator transition following it and removed with the last one.
+ */
+class KeyCountingDAWGSet extends ModifiableDAWGSet {
+    //Number of distinct prefixes of words followed by a key-value separator, see DAWGSet.getKeyCount().
+    private int keyCount;
+    
+    public KeyCountingDAWGSet() {
+        super();
+    }
+    
+    public KeyCountingDAWGSet(boolean withIncomingTransitions) {
+        super(withIncomingTransitions);
+    }
+
+    @Override
+    void transitionPathAdded(String str, int index) {
+        if (str.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR) >= index)
+            keyCount++;
+    }
+
+    @Override
+    void transitionPathRemoved(String str, int index) {
+        if (str.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR) >= index)
+            keyCount--;
+    }
+
+    @Override
+    String replaceSuffix(String prefix, String suffix) {
+        String old = super.replaceSuffix(prefix, suffix);
+        //The only word starting with prefix has a key of its own unless prefix already contains a separator.
+        if (old != null && prefix.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR) < 0)
+            keyCount += (suffix.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR) < 0 ? 0 : 1) - (old.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR) < 0 ? 0 : 1);
+        return old;
+    }
+
+    @Override
+    ModifiableDAWGSet removeStartingWith(String prefix) {
+        ModifiableDAWGSet ret = super.removeStartingWith(prefix);
+        //An empty prefix clears the set.
+        if (ret.isEmpty() || prefix.isEmpty())
+            return ret;
+        int separatorIndex = prefix.indexOf(AbstractDAWGMap.KEY_VALUE_SEPARATOR);
+        if (separatorIndex < 0)
+            //Keys are removed with all their values.
+            keyCount -= ret.getKeyCount();
+        else {
+            //The key of the prefix is removed if its separator transition is.
+            DAWGNode node = getSourceNode();
+            for (int i = 0; i <= separatorIndex && node != null; i++)
+                node = node.transition(prefix.charAt(i));
+            if (node == null)
+                keyCount--;
+        }
+        return ret;
+    }
+
+    @Override
+    public CompressedDAWGSet compress() {
+        CompressedDAWGSet ret = super.compress();
+        ret.keyCount = keyCount;
+        return ret;
+    }
+
+    @Override
+    int getKeyCount() {
+        return keyCount;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        keyCount = 0;
+    }
+}
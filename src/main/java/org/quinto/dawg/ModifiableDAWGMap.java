@@ -1,5 +1,11 @@
 package org.quinto.dawg;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Map;
+
 public class ModifiableDAWGMap extends DAWGMap {
     public ModifiableDAWGMap() {
         super(new ModifiableDAWGSet());
@@ -16,4 +22,46 @@ public class ModifiableDAWGMap extends DAWGMap {
     public CompressedDAWGMap compress() {
         return new CompressedDAWGMap(((ModifiableDAWGSet)dawg).compress());
     }
+    
+    /**
+     * Creates an immutable copy of this map that stores keys and distinct values in two separate DAWGs.
+     * It takes less memory than {@link #compress} if many keys share the same values.
+     * @return a map containing the same entries as this map
+     */
+    public CompressedDAWGIndexedMap compressIndexed() {
+        return new CompressedDAWGIndexedMap(this);
+    }
+    
+    /**
+     * Creates an immutable map of given entries without building a modifiable map first.
+     * The map is sorted by keys if it is not a {@link java.util.SortedMap} in the natural order.
+     * @param map   entries
+     * @return      a map containing the same entries as {@code map}
+     */
+    public static CompressedDAWGMap load(Map<String, String> map) {
+        return load(AbstractDAWGMap.sortedByKeys(map).entrySet().iterator());
+    }
+    
+    /**
+     * Creates an immutable map of given entries streaming them into a minimizing builder.
+     * @param sortedEntries     entries sorted by keys
+     * @return                  a map containing {@code sortedEntries}
+     * @throws IllegalArgumentException if the keys are not sorted or a key has different values
+     */
+    public static CompressedDAWGMap load(Iterator<? extends Map.Entry<String, String>> sortedEntries) {
+        return new CompressedDAWGMap(AbstractDAWGMap.load(sortedEntries, true));
+    }
+    
+    /**
+     * Creates an immutable map of entries read from lines of the form {@code key<TAB>value}.
+     * Empty lines are skipped, the stream is not closed.
+     * @param sortedTabSeparatedEntries     a stream of lines sorted by keys
+     * @param charset                       the charset the stream is encoded with, e.g. UTF-8
+     * @return                              a map containing an entry for every line
+     * @throws IOException if a read operation cannot be carried out
+     * @throws IllegalArgumentException if a line contains no tab, or the keys are not sorted, or a key has different values
+     */
+    public static CompressedDAWGMap load(InputStream sortedTabSeparatedEntries, Charset charset) throws IOException {
+        return new CompressedDAWGMap(AbstractDAWGMap.load(sortedTabSeparatedEntries, charset, true));
+    }
 }
\ No newline at end of file
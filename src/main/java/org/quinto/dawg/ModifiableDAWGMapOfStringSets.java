@@ -2,11 +2,11 @@ package org.quinto.dawg;
 
 class ModifiableDAWGMapOfStringSets extends DAWGMapOfStringSets {
     public ModifiableDAWGMapOfStringSets() {
-        super(new ModifiableDAWGSet());
+        super(new KeyCountingDAWGSet());
     }
     
     public ModifiableDAWGMapOfStringSets(boolean withIncomingTransitions) {
-        super(new ModifiableDAWGSet(withIncomingTransitions));
+        super(new KeyCountingDAWGSet(withIncomingTransitions));
     }
     
     ModifiableDAWGMapOfStringSets(ModifiableDAWGSet dawg) {
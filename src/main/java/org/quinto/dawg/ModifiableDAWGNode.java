@@ -57,7 +57,7 @@ class ModifiableDAWGNode extends DAWGNode {
     
     private final ModifiableDAWGSet graph;
     
-    private final NavigableMap<Character, Map<Integer, ModifiableDAWGNode>> incomingTransitionTreeMap;
+    private NavigableMap<Character, Map<Integer, ModifiableDAWGNode>> incomingTransitionTreeMap;
     
     /**
      * Constructs an ModifiableDAWGNode.
@@ -70,7 +70,7 @@ class ModifiableDAWGNode extends DAWGNode {
         this.id = id;
         this.isAcceptNode = isAcceptNode;
         outgoingTransitionTreeMap = new TreeMap<Character, ModifiableDAWGNode>();
-        incomingTransitionTreeMap = graph == null || graph.isWithIncomingTransitions() ? new TreeMap<Character, Map<Integer, ModifiableDAWGNode>>() : null;
+        incomingTransitionTreeMap = graph == null || graph.isKeepingIncomingTransitions() ? new TreeMap<Character, Map<Integer, ModifiableDAWGNode>>() : null;
     }
     
     /**
@@ -85,7 +85,7 @@ class ModifiableDAWGNode extends DAWGNode {
         graph = node.graph;
         isAcceptNode = node.isAcceptNode;
         outgoingTransitionTreeMap = new TreeMap<Character, ModifiableDAWGNode>(node.outgoingTransitionTreeMap);
-        incomingTransitionTreeMap = graph == null || graph.isWithIncomingTransitions() ? new TreeMap<Character, Map<Integer, ModifiableDAWGNode>>() : null;
+        incomingTransitionTreeMap = graph == null || graph.isKeepingIncomingTransitions() ? new TreeMap<Character, Map<Integer, ModifiableDAWGNode>>() : null;
         
         //Loop through the nodes in this node's outgoing transition set, incrementing the number of
         //incoming transitions of each by 1 (to account for this newly created node's outgoing transitions)
@@ -94,7 +94,7 @@ class ModifiableDAWGNode extends DAWGNode {
     }
     
     public void addIncomingTransition(char letter, ModifiableDAWGNode node) {
-        if (graph == null || graph.isWithIncomingTransitions()) {
+        if (graph == null || graph.isKeepingIncomingTransitions()) {
             Map<Integer, ModifiableDAWGNode> letterIncomingTransitions = incomingTransitionTreeMap.get(letter);
             if (letterIncomingTransitions == null)
                 incomingTransitionTreeMap.put(letter, letterIncomingTransitions = new HashMap<Integer, ModifiableDAWGNode>());
@@ -104,8 +104,17 @@ class ModifiableDAWGNode extends DAWGNode {
             incomingTransitionCount++;
     }
     
+    /**
+     * Starts keeping incoming transitions of this node that were only counted before.
+     * The transitions should be added again with {@link #addIncomingTransition}.
+     */
+    void initIncomingTransitions() {
+        incomingTransitionTreeMap = new TreeMap<Character, Map<Integer, ModifiableDAWGNode>>();
+        incomingTransitionCount = 0;
+    }
+    
     public void removeIncomingTransition(char letter, ModifiableDAWGNode node) {
-        if (graph == null || graph.isWithIncomingTransitions()) {
+        if (graph == null || graph.isKeepingIncomingTransitions()) {
             Map<Integer, ModifiableDAWGNode> letterIncomingTransitions = incomingTransitionTreeMap.get(letter);
             if (letterIncomingTransitions != null) {
                 if (letterIncomingTransitions.remove(node.getId()) != null)
@@ -228,7 +237,7 @@ class ModifiableDAWGNode extends DAWGNode {
         return outgoingTransitionTreeMap.containsKey(letter);
     }
     
-    private boolean hasIncomingTransition(char letter) {
+    boolean hasIncomingTransition(char letter) {
         return incomingTransitionTreeMap.containsKey(letter);
     }
     
@@ -315,7 +324,7 @@ class ModifiableDAWGNode extends DAWGNode {
     public void reassignOutgoingTransition(char letter, ModifiableDAWGNode oldTargetNode, ModifiableDAWGNode newTargetNode) {
         oldTargetNode.removeIncomingTransition(letter, this);
         newTargetNode.addIncomingTransition(letter, this);
-        if (graph != null && graph.isWithIncomingTransitions()) {
+        if (graph != null && graph.isKeepingIncomingTransitions()) {
             if (oldTargetNode.isAcceptNode() && !oldTargetNode.hasIncomingTransition(letter))
                 ((ModifiableDAWGNode)graph.getEndNode()).removeIncomingTransition(letter, oldTargetNode);
             if (newTargetNode.isAcceptNode())
@@ -342,6 +351,18 @@ class ModifiableDAWGNode extends DAWGNode {
         return newTargetNode;
     }
     
+    /**
+     * Creates an outgoing transition labeled with a
+     * given char that has an existing node as its target.
+
+     * @param letter            a char representing the desired label of the transition
+     * @param targetNode        the ModifiableDAWGNode that is to be the target of the transition
+     */
+    public void addOutgoingTransition(char letter, ModifiableDAWGNode targetNode) {
+        targetNode.addIncomingTransition(letter, this);
+        outgoingTransitionTreeMap.put(letter, targetNode);
+    }
+
     /**
      * Removes a transition labeled with a given char. This only removes the connection
      * between this node and the transition's target node; the target node is not deleted.
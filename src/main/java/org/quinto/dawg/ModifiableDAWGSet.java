@@ -24,6 +24,7 @@ package org.quinto.dawg;
 
 import org.quinto.dawg.util.SemiNavigableMap;
 import org.quinto.dawg.util.SimpleEntry;
+import org.quinto.dawg.util.LongHashSet;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -32,12 +33,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +48,7 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import org.quinto.dawg.util.UnmodifiableNavigableSet;
 
@@ -61,6 +65,9 @@ public class ModifiableDAWGSet extends DAWGSet {
     
     private final boolean withIncomingTransitions;
     
+    //True if incoming transitions are only counted until the first suffix search or compression needs them.
+    private boolean incomingTransitionsPending;
+    
     //ModifiableDAWGNode from which all others in the structure are reachable
     private final ModifiableDAWGNode sourceNode;
     
@@ -122,7 +129,20 @@ public class ModifiableDAWGSet extends DAWGSet {
      * for fast suffix search
      */
     public ModifiableDAWGSet(boolean withIncomingTransitions) {
+        this(withIncomingTransitions, false);
+    }
+    
+    /**
+     * Creates empty DAWG. Use {@link #addString} to fill it.
+     * @param withIncomingTransitions a flag indicating that the DAWG should store incoming transitions
+     * for fast suffix search
+     * @param lazyIncomingTransitions a flag indicating that incoming transitions should only be counted
+     * while the DAWG is filled; they are built in one pass on the first suffix search or compression
+     * and are kept up to date after that
+     */
+    public ModifiableDAWGSet(boolean withIncomingTransitions, boolean lazyIncomingTransitions) {
         this.withIncomingTransitions = withIncomingTransitions;
+        incomingTransitionsPending = withIncomingTransitions && lazyIncomingTransitions;
         sourceNode = new ModifiableDAWGNode(this, false, id++);
         endNode = new ModifiableDAWGNode(this, false, id++);
     }
@@ -309,6 +329,44 @@ public class ModifiableDAWGSet extends DAWGSet {
         return withIncomingTransitions;
     }
     
+    /**
+     * Determines if the nodes keep their incoming transitions up to date at the moment.
+     * @return false if there are no incoming transitions or they are only counted
+     */
+    boolean isKeepingIncomingTransitions() {
+        return withIncomingTransitions && !incomingTransitionsPending;
+    }
+    
+    /**
+     * Builds incoming transitions of all the nodes if they were postponed.
+     */
+    private void ensureIncomingTransitions() {
+        if (!incomingTransitionsPending)
+            return;
+        incomingTransitionsPending = false;
+        endNode.initIncomingTransitions();
+        sourceNode.initIncomingTransitions();
+        BitSet visited = new BitSet(id);
+        visited.set(sourceNode.getId());
+        Deque<ModifiableDAWGNode> stack = new ArrayDeque<ModifiableDAWGNode>();
+        stack.add(sourceNode);
+        while (!stack.isEmpty()) {
+            ModifiableDAWGNode node = stack.pollLast();
+            for (Entry<Character, ModifiableDAWGNode> transition : node.getOutgoingTransitions().entrySet()) {
+                char letter = transition.getKey();
+                ModifiableDAWGNode child = transition.getValue();
+                if (!visited.get(child.getId())) {
+                    visited.set(child.getId());
+                    child.initIncomingTransitions();
+                    stack.add(child);
+                }
+                child.addIncomingTransition(letter, node);
+                if (child.isAcceptNode())
+                    endNode.addIncomingTransition(letter, child);
+            }
+        }
+    }
+    
     private void splitTransitionPath(ModifiableDAWGNode originNode, String storedStringSubstr) {
         HashMap<String, Object> firstConfluenceNodeDataHashMap = getTransitionPathFirstConfluenceNodeData(originNode, storedStringSubstr);
         Integer toFirstConfluenceNodeTransitionCharIndex = (Integer)firstConfluenceNodeDataHashMap.get("toConfluenceNodeTransitionCharIndex");
@@ -363,6 +421,10 @@ public class ModifiableDAWGSet extends DAWGSet {
     @Override
     public boolean remove(Object o) {
         String str = (String)o;
+        //Removing non-existent word. The path is not split, so that its nodes stay registered.
+        if (!contains(str))
+            return false;
+
         //Split the transition path corresponding to str to ensure that
         //any other transition paths sharing nodes with it are not affected
         splitTransitionPath(sourceNode, str);
@@ -373,10 +435,6 @@ public class ModifiableDAWGSet extends DAWGSet {
         //Get the last node in the transition path corresponding to str
         ModifiableDAWGNode strEndNode = sourceNode.transition(str);
 
-        //Removing non-existent word.
-        if (strEndNode == null)
-            return false;
-
         if (str.isEmpty() || strEndNode.hasOutgoingTransitions()) {
             boolean result = strEndNode.setAcceptStateStatus(false);
             if (!str.isEmpty())
@@ -384,7 +442,7 @@ public class ModifiableDAWGSet extends DAWGSet {
             if (result) {
                 size--;
                 if (str.isEmpty()) {
-                    if (isWithIncomingTransitions())
+                    if (isKeepingIncomingTransitions())
                         for (char c : strEndNode.getIncomingTransitions().keySet())
                             endNode.removeIncomingTransition(c, strEndNode);
                 } else {
@@ -401,6 +459,7 @@ public class ModifiableDAWGSet extends DAWGSet {
                 sourceNode.removeOutgoingTransition(str.charAt(0));
                 transitionCount -= str.length();
                 endNode.removeIncomingTransition(str.charAt(str.length() - 1), strEndNode);
+                transitionPathRemoved(str, 0);
             } else {
                 //Remove the sub-path in str's transition path that is only used by str
                 int toBeRemovedTransitionLabelCharIndex = internalTransitionPathLength - soleInternalTransitionPathLength;
@@ -409,6 +468,7 @@ public class ModifiableDAWGSet extends DAWGSet {
                 latestNonSoloTransitionPathNode.removeOutgoingTransition(str.charAt(toBeRemovedTransitionLabelCharIndex));
                 transitionCount -= str.length() - toBeRemovedTransitionLabelCharIndex;
                 endNode.removeIncomingTransition(str.charAt(str.length() - 1), strEndNode);
+                transitionPathRemoved(str, toBeRemovedTransitionLabelCharIndex);
                 replaceOrRegister(sourceNode, prefix);
             }
             size--;
@@ -417,6 +477,174 @@ public class ModifiableDAWGSet extends DAWGSet {
         }
     }
     
+    /**
+     * Replaces the suffix of the only word starting with a given prefix, e.g. the value of a key of a {@link DAWGMap}.
+     * The path of the prefix is split and unregistered once. The path of the old suffix is detached from it
+     * (its nodes are dropped as soon as they become unreachable), and the path of the new suffix is assembled bottom-up
+     * from the registered nodes, so neither word is added or removed as a whole.
+     
+     * @param prefix    a non-empty String such that at most one word of this DAWG starts with it
+     * @param suffix    a String
+     * @return          the old suffix, or null if no word started with {@code prefix} and {@code prefix + suffix} was added
+     */
+    String replaceSuffix(String prefix, String suffix) {
+        ModifiableDAWGNode node = sourceNode.transition(prefix);
+        if (node == null) {
+            add(prefix + suffix);
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (ModifiableDAWGNode current = node; !current.isAcceptNode();) {
+            Entry<Character, ModifiableDAWGNode> transition = current.getOutgoingTransitions().firstEntry();
+            sb.append(transition.getKey());
+            current = transition.getValue();
+        }
+        String old = sb.toString();
+        if (old.equals(suffix))
+            return old;
+        if (maxLength < prefix.length() + suffix.length())
+            maxLength = prefix.length() + suffix.length();
+        splitTransitionPath(sourceNode, prefix);
+        removeTransitionPathRegisterEntries(prefix);
+        node = sourceNode.transition(prefix);
+        char lastPrefixChar = prefix.charAt(prefix.length() - 1);
+        if (old.isEmpty()) {
+            node.setAcceptStateStatus(false);
+            endNode.removeIncomingTransition(lastPrefixChar, node);
+        } else {
+            char letter = old.charAt(0);
+            ModifiableDAWGNode child = node.transition(letter);
+            node.removeOutgoingTransition(letter);
+            transitionCount--;
+            removeUnreachableNodes(node, letter, child);
+        }
+        if (suffix.isEmpty()) {
+            node.setAcceptStateStatus(true);
+            endNode.addIncomingTransition(lastPrefixChar, node);
+        } else
+            addRegisteredTransitionPath(node, suffix);
+        replaceOrRegister(sourceNode, prefix);
+        optimized = false;
+        return old;
+    }
+    
+    /**
+     * Copies the suffixes of the words starting with a given prefix without enumerating them.
+     * The subgraph of the prefix is traversed once; it is minimal, so is the copy.
+     
+     * @param prefix    a String
+     * @return          a DAWG containing the words {@code w} such that {@code prefix + w} is contained in this DAWG
+     */
+    ModifiableDAWGSet copySuffixes(String prefix) {
+        ModifiableDAWGSet ret = new ModifiableDAWGSet(false);
+        ModifiableDAWGNode node = sourceNode.transition(prefix);
+        if (node != null) {
+            ret.sourceNode.setAcceptStateStatus(node.isAcceptNode());
+            ret.addUnionTransitions(ret.sourceNode, Collections.<DAWGSet>singletonList(this), new int[]{0}, new DAWGNode[]{node}, new HashMap<UnionState, ModifiableDAWGNode>());
+            ret.calculateUnionStatistics();
+        }
+        return ret;
+    }
+    
+    /**
+     * Removes all the words starting with a given prefix at once, e.g. all the values of a key of a {@link DAWGMapOfStringSets}.
+     * The path of the prefix is split and unregistered once, the transition to the subgraph of the prefix is removed,
+     * and the nodes that become unreachable are dropped. The part of the path that leads to no other word is dropped as well.
+     
+     * @param prefix    a String
+     * @return          a copy of the removed suffixes (see {@link #copySuffixes})
+     */
+    ModifiableDAWGSet removeStartingWith(String prefix) {
+        ModifiableDAWGSet ret = copySuffixes(prefix);
+        if (ret.isEmpty())
+            return ret;
+        if (prefix.isEmpty()) {
+            clear();
+            return ret;
+        }
+        splitTransitionPath(sourceNode, prefix);
+        removeTransitionPathRegisterEntries(prefix);
+        Deque<ModifiableDAWGNode> transitionPathNodeStack = sourceNode.getTransitionPathNodes(prefix);
+        ModifiableDAWGNode node = transitionPathNodeStack.pollLast();
+        int length = prefix.length();
+        while (true) {
+            ModifiableDAWGNode parent = transitionPathNodeStack.isEmpty() ? sourceNode : transitionPathNodeStack.peekLast();
+            char letter = prefix.charAt(--length);
+            parent.removeOutgoingTransition(letter);
+            transitionCount--;
+            removeUnreachableNodes(parent, letter, node);
+            if (parent == sourceNode || parent.isAcceptNode() || parent.hasOutgoingTransitions())
+                break;
+            node = transitionPathNodeStack.pollLast();
+        }
+        if (length > 0)
+            replaceOrRegister(sourceNode, prefix.substring(0, length));
+        size -= ret.size();
+        optimized = false;
+        return ret;
+    }
+    
+    /**
+     * Removes a transition to a node.
+     * If the node becomes unreachable, it is unregistered and dropped, and so are its descendants that become unreachable.
+     
+     * @param parent    the former source of the transition
+     * @param letter    the label of the transition
+     * @param node      the target of the transition
+     */
+    private void removeUnreachableNodes(ModifiableDAWGNode parent, char letter, ModifiableDAWGNode node) {
+        node.removeIncomingTransition(letter, parent);
+        boolean unreachable = node.getIncomingTransitionCount() == 0;
+        if (node.isAcceptNode() && (unreachable || isKeepingIncomingTransitions() && !node.hasIncomingTransition(letter)))
+            endNode.removeIncomingTransition(letter, node);
+        if (!unreachable)
+            return;
+        if (equivalenceClassNodeHashMap.get(node) == node)
+            equivalenceClassNodeHashMap.remove(node);
+        for (Entry<Character, ModifiableDAWGNode> transition : node.getOutgoingTransitions().entrySet()) {
+            transitionCount--;
+            removeUnreachableNodes(node, transition.getKey(), transition.getValue());
+        }
+    }
+    
+    /**
+     * Adds a transition path from a given node reusing registered nodes.
+     * The nodes of the path are created from its end, and each one is replaced by its registered equivalent if there is one.
+     
+     * @param originNode    an unregistered node without a transition labeled with the first char of {@code str}
+     * @param str           a non-empty String
+     */
+    private void addRegisteredTransitionPath(ModifiableDAWGNode originNode, String str) {
+        ModifiableDAWGNode child = null;
+        for (int i = str.length(); i > 0; i--) {
+            ModifiableDAWGNode node = new ModifiableDAWGNode(this, child == null, id++);
+            if (child != null)
+                addNewTransition(node, str.charAt(i), child);
+            ModifiableDAWGNode equivalentNode = equivalenceClassNodeHashMap.get(node);
+            if (equivalentNode == null) {
+                equivalenceClassNodeHashMap.put(node, node);
+                if (child != null)
+                    transitionCount++;
+            } else {
+                //Nothing was created after the node, so its identifier is reused.
+                node.decrementTargetIncomingTransitionCounts();
+                id--;
+                node = equivalentNode;
+            }
+            child = node;
+        }
+        addNewTransition(originNode, str.charAt(0), child);
+        transitionCount++;
+        for (int i = 0; i < str.length(); i++)
+            alphabet.add(str.charAt(i));
+    }
+    
+    private void addNewTransition(ModifiableDAWGNode parent, char letter, ModifiableDAWGNode child) {
+        parent.addOutgoingTransition(letter, child);
+        if (child.isAcceptNode())
+            endNode.addIncomingTransition(letter, child);
+    }
+    
     /**
      * Determines the start index of the substring in the String most recently added to the ModifiableDAWGSet
  that corresponds to the transition path that will be next up for minimization processing.
@@ -548,7 +776,7 @@ public class ModifiableDAWGSet extends DAWGSet {
             size++;
             return true;
         } else if (originNode.setAcceptStateStatus(true)) {
-            if (isWithIncomingTransitions())
+            if (isKeepingIncomingTransitions())
                 for (char c : originNode.getIncomingTransitions().keySet())
                     endNode.addIncomingTransition(c, originNode);
             size++;
@@ -666,7 +894,26 @@ public class ModifiableDAWGSet extends DAWGSet {
         }
         
         //Add the transition based on suffixString to the end of the (possibly duplicated) transition path corresponding to prefixString
-        return addTransitionPath(sourceNode.transition(prefixString), suffixString);
+        boolean ret = addTransitionPath(sourceNode.transition(prefixString), suffixString);
+        if (ret)
+            transitionPathAdded(str, prefixString.length());
+        return ret;
+    }
+    
+    /**
+     * Called when a word is added. No other word passes through the transitions of its suffix.
+     * @param str       the added word
+     * @param index     the index of the first char of {@code str} labeling a new transition
+     */
+    void transitionPathAdded(String str, int index) {
+    }
+    
+    /**
+     * Called when a word is removed. No other word passed through the removed transitions of its suffix.
+     * @param str       the removed word
+     * @param index     the index of the first char of {@code str} labeling a removed transition
+     */
+    void transitionPathRemoved(String str, int index) {
     }
     
     private int createCompressedOutgoingTransitionsDataSmall(int data[], ModifiableDAWGNode node, int currentNodeIndex, int onePastLastCreatedTransitionSetIndex, int compressedNodeSize, Map<Character, Integer> lettersIndex) {
@@ -790,6 +1037,7 @@ public class ModifiableDAWGSet extends DAWGSet {
             stack.addAll(node.getOutgoingTransitions().values());
         }
         if (isWithIncomingTransitions()) {
+            ensureIncomingTransitions();
             compressed.incomingData = new int[(transitionCount + endNode.getIncomingTransitionCount() + 1) * CompressedDAWGSet.INCOMING_TRANSITION_SIZE_IN_INTS];
             createCompressedIncomingTransitionsData(compressed.incomingData, endNode, 0, '\0', CompressedDAWGSet.INCOMING_TRANSITION_SIZE_IN_INTS, new int[]{CompressedDAWGSet.INCOMING_TRANSITION_SIZE_IN_INTS});
             //Clear all transition begin indexes.
@@ -807,8 +1055,195 @@ public class ModifiableDAWGSet extends DAWGSet {
         return compressed;
     }
     
+    /**
+     * Creates a space-saving version of the ModifiableDAWGSet in the form of an array.
+     * @param withSubstringIndex    a flag indicating that the result should contain an index for fast substring search
+     * (see {@link CompressedDAWGSet#isWithSubstringIndex}); the index takes a few ints per transition
+     * @return an instance of {@link CompressedDAWGSet} containing all the words added to this DAWG
+     */
+    public CompressedDAWGSet compress(boolean withSubstringIndex) {
+        CompressedDAWGSet compressed = compress();
+        if (withSubstringIndex)
+            compressed.substringIndex = new SubstringIndex(compressed);
+        return compressed;
+    }
+    
+    /**
+     * Creates a DAWG containing all the words of the given DAWGs without enumerating them.
+     * The graphs are traversed synchronously (the transitions of the same letter are followed together),
+     * and every combination of their states is turned into a node of the result only once.
+     * The nodes are registered bottom-up, so the result is minimal.<br>
+     * DAWGs that don't expose their nodes (e.g. {@link UnmodifiableDAWGSet}) are enumerated.
+
+     * @param sets                      DAWGs to merge, their alphabets may differ
+     * @param withIncomingTransitions   a flag indicating that the result should store incoming transitions
+     * @return                          a DAWG containing every word contained in at least one of {@code sets}
+     */
+    static ModifiableDAWGSet union(Collection<? extends DAWGSet> sets, boolean withIncomingTransitions) {
+        List<DAWGSet> graphs = new ArrayList<DAWGSet>();
+        for (DAWGSet set : sets) {
+            if (set.isEmpty())
+                continue;
+            if (set.getSourceNode() == null)
+                graphs.add(new ModifiableDAWGSet(false, set));
+            else
+                graphs.add(set);
+        }
+        ModifiableDAWGSet ret = new ModifiableDAWGSet(withIncomingTransitions);
+        int graphIndexes[] = new int[graphs.size()];
+        DAWGNode sources[] = new DAWGNode[graphs.size()];
+        for (int i = 0; i < sources.length; i++) {
+            graphIndexes[i] = i;
+            sources[i] = graphs.get(i).getSourceNode();
+            if (sources[i].isAcceptNode())
+                ret.sourceNode.setAcceptStateStatus(true);
+        }
+        ret.addUnionTransitions(ret.sourceNode, graphs, graphIndexes, sources, new HashMap<UnionState, ModifiableDAWGNode>());
+        ret.calculateUnionStatistics();
+        return ret;
+    }
+
+    private void addUnionTransitions(ModifiableDAWGNode parent, List<DAWGSet> graphs, int graphIndexes[], DAWGNode nodes[], Map<UnionState, ModifiableDAWGNode> states) {
+        //Group the targets of the transitions of all nodes by letters.
+        NavigableMap<Character, DAWGNode[]> targets = new TreeMap<Character, DAWGNode[]>();
+        for (int i = 0; i < nodes.length; i++) {
+            for (SimpleEntry<Character, DAWGNode> transition : graphs.get(graphIndexes[i]).getOutgoingTransitions(nodes[i])) {
+                DAWGNode letterTargets[] = targets.get(transition.getKey());
+                if (letterTargets == null)
+                    targets.put(transition.getKey(), letterTargets = new DAWGNode[nodes.length]);
+                letterTargets[i] = transition.getValue();
+            }
+        }
+        for (Entry<Character, DAWGNode[]> e : targets.entrySet()) {
+            DAWGNode letterTargets[] = e.getValue();
+            int count = 0;
+            for (DAWGNode target : letterTargets)
+                if (target != null)
+                    count++;
+            int childGraphIndexes[] = new int[count];
+            DAWGNode childNodes[] = new DAWGNode[count];
+            count = 0;
+            for (int i = 0; i < letterTargets.length; i++) {
+                if (letterTargets[i] != null) {
+                    childGraphIndexes[count] = graphIndexes[i];
+                    childNodes[count++] = letterTargets[i];
+                }
+            }
+            parent.addOutgoingTransition(e.getKey(), getUnionNode(graphs, childGraphIndexes, childNodes, states));
+        }
+    }
+
+    private ModifiableDAWGNode getUnionNode(List<DAWGSet> graphs, int graphIndexes[], DAWGNode nodes[], Map<UnionState, ModifiableDAWGNode> states) {
+        UnionState state = new UnionState(graphIndexes, nodes);
+        ModifiableDAWGNode ret = states.get(state);
+        if (ret != null)
+            return ret;
+        boolean accept = false;
+        for (DAWGNode node : nodes)
+            accept |= node.isAcceptNode();
+        ret = new ModifiableDAWGNode(this, accept, id++);
+        addUnionTransitions(ret, graphs, graphIndexes, nodes, states);
+        //Different combinations of states may have the same right language.
+        ModifiableDAWGNode equivalentNode = equivalenceClassNodeHashMap.get(ret);
+        if (equivalentNode == null)
+            equivalenceClassNodeHashMap.put(ret, ret);
+        else {
+            ret.decrementTargetIncomingTransitionCounts();
+            ret = equivalentNode;
+        }
+        states.put(state, ret);
+        return ret;
+    }
+
+    private void calculateUnionStatistics() {
+        Map<ModifiableDAWGNode, int[]> statistics = new HashMap<ModifiableDAWGNode, int[]>();
+        int sourceStatistics[] = calculateUnionStatistics(sourceNode, statistics);
+        size = sourceStatistics[0];
+        maxLength = sourceStatistics[1];
+    }
+
+    /**
+     * Calculates the quantity of words and the maximal length of words starting from a node.
+     * Transition count, alphabet and incoming transitions of the end node are updated on the first visit of every node.
+     */
+    private int[] calculateUnionStatistics(ModifiableDAWGNode node, Map<ModifiableDAWGNode, int[]> statistics) {
+        int ret[] = statistics.get(node);
+        if (ret != null)
+            return ret;
+        ret = new int[]{node.isAcceptNode() ? 1 : 0, 0};
+        for (Entry<Character, ModifiableDAWGNode> transition : node.getOutgoingTransitions().entrySet()) {
+            char letter = transition.getKey();
+            ModifiableDAWGNode target = transition.getValue();
+            transitionCount++;
+            alphabet.add(letter);
+            if (withIncomingTransitions && target.isAcceptNode())
+                endNode.addIncomingTransition(letter, target);
+            int targetStatistics[] = calculateUnionStatistics(target, statistics);
+            ret[0] += targetStatistics[0];
+            ret[1] = Math.max(ret[1], targetStatistics[1] + 1);
+        }
+        if (node != sourceNode)
+            statistics.put(node, ret);
+        return ret;
+    }
+
+    /**
+     * A combination of states of several graphs.
+     */
+    private static class UnionState {
+        private final long key[];
+
+        private final int hashCode;
+
+        public UnionState(int graphIndexes[], DAWGNode nodes[]) {
+            key = new long[nodes.length * 2];
+            for (int i = 0; i < nodes.length; i++) {
+                key[i * 2] = graphIndexes[i];
+                key[i * 2 + 1] = nodes[i].getStateKey();
+            }
+            hashCode = Arrays.hashCode(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof UnionState))
+                return false;
+            UnionState other = (UnionState)obj;
+            return hashCode == other.hashCode && Arrays.equals(key, other.key);
+        }
+    }
+
+    @Override
+    LongHashSet getSuffixAncestors(String suffix) {
+        if (!isWithIncomingTransitions())
+            return null;
+        ensureIncomingTransitions();
+        LongHashSet ret = new LongHashSet();
+        Deque<ModifiableDAWGNode> queue = new ArrayDeque<ModifiableDAWGNode>();
+        for (DAWGNode node : getNodesBySuffix(suffix)) {
+            if (ret.add(node.getStateKey()))
+                queue.add((ModifiableDAWGNode)node);
+        }
+        while (!queue.isEmpty()) {
+            ModifiableDAWGNode node = queue.poll();
+            for (Map<Integer, ModifiableDAWGNode> parents : node.getIncomingTransitions().values())
+                for (ModifiableDAWGNode parent : parents.values())
+                    if (ret.add(parent.getStateKey()))
+                        queue.add(parent);
+        }
+        return ret;
+    }
+
     @Override
     Collection<? extends DAWGNode> getNodesBySuffix(String suffix) {
+        ensureIncomingTransitions();
         char suffixText[] = suffix.toCharArray();
         char lastChar = suffixText[suffixText.length - 1];
         Map<Integer, ModifiableDAWGNode> wordEndings = endNode.getIncomingTransitions().get(lastChar);
@@ -816,15 +1251,66 @@ public class ModifiableDAWGSet extends DAWGSet {
             return Collections.EMPTY_LIST;
         Collection<ModifiableDAWGNode> ret = wordEndings.values();
         for (int i = suffixText.length - 1; i >= 0; i--) {
-            List<ModifiableDAWGNode> levelNodes = new ArrayList<ModifiableDAWGNode>();
+            // Nodes are deduplicated by their ids.
+            Map<Integer, ModifiableDAWGNode> levelNodes = new LinkedHashMap<Integer, ModifiableDAWGNode>();
             char c = suffixText[i];
             for (ModifiableDAWGNode node : ret) {
                 wordEndings = node.getIncomingTransitions().get(c);
                 if (wordEndings != null)
-                    levelNodes.addAll(wordEndings.values());
+                    levelNodes.putAll(wordEndings);
             }
-            ret = levelNodes;
+            if (levelNodes.isEmpty())
+                return Collections.EMPTY_LIST;
+            ret = levelNodes.values();
+        }
+        return ret;
+    }
+    
+    /**
+     * Rebuilds the graph of this DAWG bottom-up as a minimal one.
+     * Every state is visited once after its children, and equivalent states are merged through the register,
+     * so the time is linear in the quantity of transitions.
+     * Node identifiers are reassigned compactly, the register and the incoming transitions are created from scratch.<br>
+     * Use it after a large quantity of removals to reclaim memory of a long-lived DAWG.
+     */
+    public void minimize() {
+        optimizeLetters();
+        equivalenceClassNodeHashMap.clear();
+        endNode.removeAllIncomingTransitions();
+        id = 2;
+        Map<Integer, ModifiableDAWGNode> minimized = new HashMap<Integer, ModifiableDAWGNode>();
+        NavigableMap<Character, ModifiableDAWGNode> transitions = new TreeMap<Character, ModifiableDAWGNode>(sourceNode.getOutgoingTransitions());
+        sourceNode.removeAllOutgoingTransitions();
+        for (Entry<Character, ModifiableDAWGNode> transition : transitions.entrySet())
+            sourceNode.addOutgoingTransition(transition.getKey(), minimize(transition.getValue(), minimized));
+        sourceNode.clearStoredHashCode();
+        transitionCount = 0;
+        calculateUnionStatistics();
+    }
+    
+    private ModifiableDAWGNode minimize(ModifiableDAWGNode node, Map<Integer, ModifiableDAWGNode> minimized) {
+        ModifiableDAWGNode ret = minimized.get(node.getId());
+        if (ret != null)
+            return ret;
+        NavigableMap<Character, ModifiableDAWGNode> transitions = node.getOutgoingTransitions();
+        ModifiableDAWGNode children[] = new ModifiableDAWGNode[transitions.size()];
+        int i = 0;
+        for (ModifiableDAWGNode child : transitions.values())
+            children[i++] = minimize(child, minimized);
+        ret = new ModifiableDAWGNode(this, node.isAcceptNode(), id++);
+        i = 0;
+        for (char letter : transitions.keySet())
+            ret.addOutgoingTransition(letter, children[i++]);
+        ModifiableDAWGNode equivalentNode = equivalenceClassNodeHashMap.get(ret);
+        if (equivalentNode == null)
+            equivalenceClassNodeHashMap.put(ret, ret);
+        else {
+            //The children are already minimized, so the identifier of the duplicate is the last one assigned.
+            ret.decrementTargetIncomingTransitionCounts();
+            ret = equivalentNode;
+            id--;
         }
+        minimized.put(node.getId(), ret);
         return ret;
     }
     
@@ -921,6 +1407,7 @@ public class ModifiableDAWGSet extends DAWGSet {
 
     @Override
     SemiNavigableMap<Character, Collection<? extends DAWGNode>> getIncomingTransitions(DAWGNode parent) {
+        ensureIncomingTransitions();
         return new IncomingTransitionsMap((ModifiableDAWGNode)parent, false);
     }
 
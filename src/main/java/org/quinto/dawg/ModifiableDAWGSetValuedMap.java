@@ -1,5 +1,16 @@
 package org.quinto.dawg;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.quinto.dawg.util.LookaheadIterator;
+
 public class ModifiableDAWGSetValuedMap extends DAWGSetValuedMap {
     public ModifiableDAWGSetValuedMap() {
         super(new ModifiableDAWGMapOfStringSets());
@@ -16,4 +27,60 @@ public class ModifiableDAWGSetValuedMap extends DAWGSetValuedMap {
     public CompressedDAWGSetValuedMap compress() {
         return new CompressedDAWGSetValuedMap(((ModifiableDAWGMapOfStringSets)mapOfSets).compress());
     }
+    
+    /**
+     * Creates an immutable map of given keys and their values without building a modifiable map first.
+     * Keys and values are sorted unless they are already sorted in the natural order.
+     * @param map   sets of values by keys
+     * @return      a map containing the same keys and values as {@code map}
+     */
+    public static CompressedDAWGSetValuedMap load(Map<String, ? extends Iterable<String>> map) {
+        final Iterator<? extends Map.Entry<String, ? extends Iterable<String>>> keys = AbstractDAWGMap.sortedByKeys(map).entrySet().iterator();
+        return load(new LookaheadIterator<Map.Entry<String, String>>() {
+            private String key;
+            private Iterator<String> values = Collections.<String>emptySet().iterator();
+
+            @Override
+            public Map.Entry<String, String> nextElement() {
+                while (!values.hasNext()) {
+                    if (!keys.hasNext())
+                        throw NO_SUCH_ELEMENT_EXCEPTION;
+                    Map.Entry<String, ? extends Iterable<String>> e = keys.next();
+                    key = e.getKey();
+                    Iterable<String> v = e.getValue();
+                    if (!(v instanceof SortedSet) || ((SortedSet<String>)v).comparator() != null) {
+                        SortedSet<String> sorted = new TreeSet<String>();
+                        for (String value : v)
+                            sorted.add(value);
+                        v = sorted;
+                    }
+                    values = v.iterator();
+                }
+                return new SimpleImmutableEntry<String, String>(key, values.next());
+            }
+        });
+    }
+    
+    /**
+     * Creates an immutable map of given entries streaming them into a minimizing builder.
+     * @param sortedEntries     pairs of a key and one of its values sorted by keys, then by values
+     * @return                  a map containing {@code sortedEntries}
+     * @throws IllegalArgumentException if the entries are not sorted
+     */
+    public static CompressedDAWGSetValuedMap load(Iterator<? extends Map.Entry<String, String>> sortedEntries) {
+        return new CompressedDAWGSetValuedMap(new CompressedDAWGMapOfStringSets(AbstractDAWGMap.load(sortedEntries, false)));
+    }
+    
+    /**
+     * Creates an immutable map of entries read from lines of the form {@code key<TAB>value}.
+     * Empty lines are skipped, the stream is not closed.
+     * @param sortedTabSeparatedEntries     a stream of lines sorted by keys, then by values
+     * @param charset                       the charset the stream is encoded with, e.g. UTF-8
+     * @return                              a map containing an entry for every line
+     * @throws IOException if a read operation cannot be carried out
+     * @throws IllegalArgumentException if a line contains no tab or the lines are not sorted
+     */
+    public static CompressedDAWGSetValuedMap load(InputStream sortedTabSeparatedEntries, Charset charset) throws IOException {
+        return new CompressedDAWGSetValuedMap(new CompressedDAWGMapOfStringSets(AbstractDAWGMap.load(sortedTabSeparatedEntries, charset, false)));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package org.quinto.dawg;
+
+import java.util.Arrays;
+
+/**
+ * An immutable node of a {@link PersistentDAWGSet}.
+ * Nodes are never changed after creation, so a node may be shared by any number of versions of the graph.
+ * A modification creates copies of the nodes on the affected path only.
+ */
+class PersistentDAWGNode extends DAWGNode {
+    static final char NO_LETTERS[] = new char[0];
+    static final PersistentDAWGNode NO_CHILDREN[] = new PersistentDAWGNode[0];
+
+    private final int id;
+
+    private final boolean acceptNode;
+
+    //Sorted labels of the outgoing transitions.
+    private final char letters[];
+
+    //Targets of the outgoing transitions, in the order of letters.
+    private final PersistentDAWGNode children[];
+
+    private final int hashCode;
+
+    PersistentDAWGNode(boolean acceptNode, char letters[], PersistentDAWGNode children[], int id) {
+        this.id = id;
+        this.acceptNode = acceptNode;
+        this.letters = letters;
+        this.children = children;
+        int hash = acceptNode ? 1 : 0;
+        for (int i = 0; i < letters.length; i++)
+            hash = 31 * (31 * hash + letters[i]) + children[i].id;
+        hashCode = hash;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isAcceptNode() {
+        return acceptNode;
+    }
+
+    @Override
+    public PersistentDAWGNode transition(char letter) {
+        int pos = Arrays.binarySearch(letters, letter);
+        return pos < 0 ? null : children[pos];
+    }
+
+    @Override
+    public PersistentDAWGNode transition(String str) {
+        return (PersistentDAWGNode)super.transition(str);
+    }
+
+    char[] getLetters() {
+        return letters;
+    }
+
+    PersistentDAWGNode[] getChildren() {
+        return children;
+    }
+
+    int getOutgoingTransitionCount() {
+        return letters.length;
+    }
+
+    boolean hasOutgoingTransitions() {
+        return letters.length > 0;
+    }
+
+    /**
+     * Creates a copy of this node with a given accept status.
+
+     * @param acceptNode    accept status of a copy
+     * @param id            identifier of a copy
+     * @return              a new node that differs from this one in accept status only
+     */
+    PersistentDAWGNode withAcceptStatus(boolean acceptNode, int id) {
+        return new PersistentDAWGNode(acceptNode, letters, children, id);
+    }
+
+    /**
+     * Creates a copy of this node with an outgoing transition added or replaced.
+
+     * @param letter        a label of the transition
+     * @param target        a target of the transition
+     * @param id            identifier of a copy
+     * @return              a new node that has a transition labeled with {@code letter} to {@code target}
+     */
+    PersistentDAWGNode withTransition(char letter, PersistentDAWGNode target, int id) {
+        int pos = Arrays.binarySearch(letters, letter);
+        if (pos >= 0) {
+            PersistentDAWGNode newChildren[] = children.clone();
+            newChildren[pos] = target;
+            return new PersistentDAWGNode(acceptNode, letters, newChildren, id);
+        }
+        pos = -pos - 1;
+        char newLetters[] = new char[letters.length + 1];
+        PersistentDAWGNode newChildren[] = new PersistentDAWGNode[children.length + 1];
+        System.arraycopy(letters, 0, newLetters, 0, pos);
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        newLetters[pos] = letter;
+        newChildren[pos] = target;
+        System.arraycopy(letters, pos, newLetters, pos + 1, letters.length - pos);
+        System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+        return new PersistentDAWGNode(acceptNode, newLetters, newChildren, id);
+    }
+
+    /**
+     * Creates a copy of this node without an outgoing transition.
+
+     * @param letter        a label of the transition to be removed
+     * @param id            identifier of a copy
+     * @return              a new node that has no transition labeled with {@code letter}
+     */
+    PersistentDAWGNode withoutTransition(char letter, int id) {
+        int pos = Arrays.binarySearch(letters, letter);
+        if (pos < 0)
+            return this;
+        if (letters.length == 1)
+            return new PersistentDAWGNode(acceptNode, NO_LETTERS, NO_CHILDREN, id);
+        char newLetters[] = new char[letters.length - 1];
+        PersistentDAWGNode newChildren[] = new PersistentDAWGNode[children.length - 1];
+        System.arraycopy(letters, 0, newLetters, 0, pos);
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        System.arraycopy(letters, pos + 1, newLetters, pos, letters.length - pos - 1);
+        System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+        return new PersistentDAWGNode(acceptNode, newLetters, newChildren, id);
+    }
+
+    /**
+     * Two nodes are equal if they have the same accept status and their transitions
+     * with equal labels lead to the same (canonical) nodes.
+     * Children are compared by reference since all of them have already been registered.
+
+     * @param obj       an object to compare with
+     * @return          true if {@code obj} is a node with the same right language as this one
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof PersistentDAWGNode))
+            return false;
+        PersistentDAWGNode other = (PersistentDAWGNode)obj;
+        if (acceptNode != other.acceptNode || hashCode != other.hashCode || !Arrays.equals(letters, other.letters))
+            return false;
+        for (int i = 0; i < children.length; i++)
+            if (children[i] != other.children[i])
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,427 @@
+package org.quinto.dawg;
+
+import org.quinto.dawg.util.SemiNavigableMap;
+import org.quinto.dawg.util.SimpleEntry;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import org.quinto.dawg.util.UnmodifiableNavigableSet;
+
+/**
+ * A minimal directed acyclic word graph built of immutable nodes.
+ * Adding or removing a word copies only the nodes on the path of that word and
+ * publishes a new version of the graph, so all the previous versions stay intact and share
+ * the rest of their nodes with the current one.<br>
+ * This makes {@link #snapshot} an O(1) operation: a snapshot is an immutable DAWGSet that
+ * may be read by any number of threads while the writer keeps modifying this set.<br>
+ * Modifications are not synchronized: they should be performed by a single thread at a time.
+ * Queries on a modifiable PersistentDAWGSet see the version that was current when the query started.
+ * Suffix search does not use incoming transitions on this kind of DAWG.
+ */
+public class PersistentDAWGSet extends DAWGSet {
+    private static final PersistentDAWGNode EMPTY_NODE = new PersistentDAWGNode(true, PersistentDAWGNode.NO_LETTERS, PersistentDAWGNode.NO_CHILDREN, DAWGNode.EMPTY);
+
+    //Increment for node identifiers.
+    private int id;
+
+    //Canonical nodes of all the versions produced by this set. Nodes that are no longer reachable
+    //from any version are collected by GC along with their entries.
+    private final Map<PersistentDAWGNode, WeakReference<PersistentDAWGNode>> register;
+
+    private final boolean immutable;
+
+    private volatile Version version;
+
+    /**
+     * Creates an empty PersistentDAWGSet.
+     */
+    public PersistentDAWGSet() {
+        immutable = false;
+        register = new WeakHashMap<PersistentDAWGNode, WeakReference<PersistentDAWGNode>>();
+        version = new Version(register(new PersistentDAWGNode(false, PersistentDAWGNode.NO_LETTERS, PersistentDAWGNode.NO_CHILDREN, id)), 0, 0);
+    }
+
+    /**
+     * Creates a PersistentDAWGSet from an iterable of Strings.
+     * @param strCollection     an {@link java.util.Iterable} containing Strings that the DAWG will contain
+     */
+    public PersistentDAWGSet(Iterable<? extends String> strCollection) {
+        this();
+        addAll(strCollection);
+    }
+
+    private PersistentDAWGSet(Version version) {
+        immutable = true;
+        register = null;
+        this.version = version;
+    }
+
+    /**
+     * Returns an immutable view of the current version of this set.
+     * The snapshot is not affected by further modifications of this set.
+     * It takes O(1) time since the versions share their nodes.
+     * @return an immutable PersistentDAWGSet containing all the words that this set contains at the moment of call
+     */
+    public PersistentDAWGSet snapshot() {
+        return immutable ? this : new PersistentDAWGSet(version);
+    }
+
+    /**
+     * Creates a space-saving version of this DAWG.
+     * @return an instance of {@link CompressedDAWGSet} containing all the words of the current version of this DAWG
+     */
+    public CompressedDAWGSet compress() {
+        return new ModifiableDAWGSet(snapshot()).compress();
+    }
+
+    private void checkModifiable() {
+        if (immutable)
+            throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a canonical node equal to a given one, registering the given node if there is no such node yet.
+
+     * @param node      a newly created node
+     * @return          the node representing the equivalence class of {@code node}
+     */
+    private PersistentDAWGNode register(PersistentDAWGNode node) {
+        WeakReference<PersistentDAWGNode> ref = register.get(node);
+        PersistentDAWGNode equivalentNode = ref == null ? null : ref.get();
+        if (equivalentNode != null)
+            return equivalentNode;
+        register.put(node, new WeakReference<PersistentDAWGNode>(node));
+        id++;
+        return node;
+    }
+
+    /**
+     * Creates a copy of the transition path of a String that is absent in the DAWG,
+     * making the last node of the path an accept node.
+
+     * @param node      a node the path starts from, or null if there is no such node yet
+     * @param str       a String to be added
+     * @param pos       index of the char in {@code str} that labels the transition from {@code node}
+     * @return          a canonical node that replaces {@code node}
+     */
+    private PersistentDAWGNode addTransitionPath(PersistentDAWGNode node, String str, int pos) {
+        if (node == null)
+            node = new PersistentDAWGNode(false, PersistentDAWGNode.NO_LETTERS, PersistentDAWGNode.NO_CHILDREN, id);
+        if (pos == str.length())
+            return register(node.withAcceptStatus(true, id));
+        char c = str.charAt(pos);
+        PersistentDAWGNode child = addTransitionPath(node.transition(c), str, pos + 1);
+        return register(node.withTransition(c, child, id));
+    }
+
+    /**
+     * Creates a copy of the transition path of a String that is present in the DAWG,
+     * dropping the nodes that are used by that String only.
+
+     * @param node      a node the path starts from
+     * @param str       a String to be removed
+     * @param pos       index of the char in {@code str} that labels the transition from {@code node}
+     * @return          a canonical node that replaces {@code node}, or null if its right language becomes empty
+     */
+    private PersistentDAWGNode removeTransitionPath(PersistentDAWGNode node, String str, int pos) {
+        if (pos == str.length())
+            return node.hasOutgoingTransitions() ? register(node.withAcceptStatus(false, id)) : null;
+        char c = str.charAt(pos);
+        PersistentDAWGNode child = removeTransitionPath(node.transition(c), str, pos + 1);
+        if (child != null)
+            return register(node.withTransition(c, child, id));
+        if (!node.isAcceptNode() && node.getOutgoingTransitionCount() == 1)
+            return null;
+        return register(node.withoutTransition(c, id));
+    }
+
+    /**
+     * Returns the version that the next modification should be applied to.
+     * @return the current version
+     */
+    Version getWritableVersion() {
+        return version;
+    }
+
+    /**
+     * Makes a version visible to readers.
+     * @param version       a new version of the graph
+     */
+    void setVersion(Version version) {
+        this.version = version;
+    }
+
+    private Version add(Version v, String str) {
+        PersistentDAWGNode strEndNode = v.root.transition(str);
+        if (strEndNode != null && strEndNode.isAcceptNode())
+            return v;
+        return new Version(addTransitionPath(v.root, str, 0), v.size + 1, Math.max(v.maxLength, str.length()));
+    }
+
+    private Version remove(Version v, String str) {
+        PersistentDAWGNode strEndNode = v.root.transition(str);
+        if (strEndNode == null || !strEndNode.isAcceptNode())
+            return v;
+        PersistentDAWGNode root = removeTransitionPath(v.root, str, 0);
+        if (root == null)
+            root = register(new PersistentDAWGNode(false, PersistentDAWGNode.NO_LETTERS, PersistentDAWGNode.NO_CHILDREN, id));
+        return new Version(root, v.size - 1, v.maxLength);
+    }
+
+    /**
+     * Adds a string to the PersistentDAWGSet.
+
+     * @param str       the String to be added to the PersistentDAWGSet
+     * @return true if PersistentDAWGSet didn't contain this string yet
+     */
+    @Override
+    public boolean add(String str) {
+        checkModifiable();
+        Version v = getWritableVersion();
+        Version newVersion = add(v, str);
+        setVersion(newVersion);
+        return newVersion != v;
+    }
+
+    /**
+     * Adds an iterable of Strings to the PersistentDAWGSet.
+     * All the added Strings become visible to readers at once.
+
+     * @param strCollection     a {@link java.util.Iterable} containing Strings to be added to the PersistentDAWGSet
+     * @return true if and only if this PersistentDAWGSet was changed as a result of this call
+     */
+    @Override
+    public boolean addAll(Iterable<? extends String> strCollection) {
+        checkModifiable();
+        Version v = getWritableVersion();
+        Version newVersion = v;
+        for (String str : strCollection)
+            newVersion = add(newVersion, str);
+        setVersion(newVersion);
+        return newVersion != v;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+        return addAll((Iterable<? extends String>)c);
+    }
+
+    /**
+     * Removes a String from the PersistentDAWGSet.
+
+     * @param o       the String to be removed from the PersistentDAWGSet
+     * @return true if PersistentDAWGSet already contained this string
+     */
+    @Override
+    public boolean remove(Object o) {
+        checkModifiable();
+        Version v = getWritableVersion();
+        Version newVersion = remove(v, (String)o);
+        setVersion(newVersion);
+        return newVersion != v;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        checkModifiable();
+        Version v = getWritableVersion();
+        Version newVersion = v;
+        for (Object e : c)
+            newVersion = remove(newVersion, (String)e);
+        setVersion(newVersion);
+        return newVersion != v;
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        // Max length is kept: a concurrent reader may still traverse the previous version.
+        setVersion(new Version(register(new PersistentDAWGNode(false, PersistentDAWGNode.NO_LETTERS, PersistentDAWGNode.NO_CHILDREN, id)), 0, getWritableVersion().maxLength));
+    }
+
+    @Override
+    public boolean contains(Object str) {
+        PersistentDAWGNode targetNode = version.root.transition((String)str);
+        return targetNode != null && targetNode.isAcceptNode();
+    }
+
+    @Override
+    public int size() {
+        return version.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return version.size == 0;
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    @Override
+    public boolean isWithIncomingTransitions() {
+        return false;
+    }
+
+    @Override
+    SemiNavigableMap<Character, DAWGNode> getOutgoingTransitions(DAWGNode parent) {
+        return new OutgoingTransitionsMap((PersistentDAWGNode)parent, false);
+    }
+
+    @Override
+    SemiNavigableMap<Character, Collection<? extends DAWGNode>> getIncomingTransitions(DAWGNode parent) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    PersistentDAWGNode getSourceNode() {
+        return version.root;
+    }
+
+    @Override
+    DAWGNode getEndNode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    DAWGNode getEmptyNode() {
+        return EMPTY_NODE;
+    }
+
+    @Override
+    Collection<? extends DAWGNode> getNodesBySuffix(String suffix) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    int getMaxLength() {
+        return version.maxLength;
+    }
+
+    @Override
+    public int getTransitionCount() {
+        int transitionCount = 0;
+        for (PersistentDAWGNode node : getNodes(version.root))
+            transitionCount += node.getOutgoingTransitionCount();
+        return transitionCount;
+    }
+
+    @Override
+    public int getNodeCount() {
+        return getNodes(version.root).size();
+    }
+
+    @Override
+    public NavigableSet<Character> getAlphabet() {
+        Version v = version;
+        NavigableSet<Character> alphabet = v.alphabet;
+        if (alphabet == null) {
+            NavigableSet<Character> letters = new TreeSet<Character>();
+            for (PersistentDAWGNode node : getNodes(v.root))
+                for (char c : node.getLetters())
+                    letters.add(c);
+            alphabet = new UnmodifiableNavigableSet<Character>(letters);
+            v.alphabet = alphabet;
+        }
+        return alphabet;
+    }
+
+    private static Collection<PersistentDAWGNode> getNodes(PersistentDAWGNode root) {
+        Set<PersistentDAWGNode> nodes = Collections.newSetFromMap(new IdentityHashMap<PersistentDAWGNode, Boolean>());
+        Deque<PersistentDAWGNode> stack = new ArrayDeque<PersistentDAWGNode>();
+        stack.add(root);
+        nodes.add(root);
+        while (true) {
+            PersistentDAWGNode node = stack.pollLast();
+            if (node == null)
+                break;
+            for (PersistentDAWGNode child : node.getChildren())
+                if (nodes.add(child))
+                    stack.add(child);
+        }
+        return nodes;
+    }
+
+    /**
+     * An immutable state of the graph. Readers take the current version once per query,
+     * so each query observes a consistent graph.
+     */
+    static final class Version {
+        final PersistentDAWGNode root;
+
+        //Total number of words contained in this version.
+        final int size;
+
+        //Maximal length of all words added to this DAWG. Does not decrease on removing.
+        final int maxLength;
+
+        //Calculated lazily.
+        volatile NavigableSet<Character> alphabet;
+
+        Version(PersistentDAWGNode root, int size, int maxLength) {
+            this.root = root;
+            this.size = size;
+            this.maxLength = maxLength;
+        }
+    }
+
+    private static class OutgoingTransitionsMap implements SemiNavigableMap<Character, DAWGNode> {
+        private final PersistentDAWGNode parent;
+        private final boolean desc;
+
+        public OutgoingTransitionsMap(PersistentDAWGNode parent, boolean desc) {
+            this.parent = parent;
+            this.desc = desc;
+        }
+
+        @Override
+        public Iterator<SimpleEntry<Character, DAWGNode>> iterator() {
+            return new Iterator<SimpleEntry<Character, DAWGNode>>() {
+                private final char letters[] = parent.getLetters();
+                private final PersistentDAWGNode children[] = parent.getChildren();
+                private int i = desc ? letters.length - 1 : 0;
+
+                @Override
+                public boolean hasNext() {
+                    return desc ? i >= 0 : i < letters.length;
+                }
+
+                @Override
+                public SimpleEntry<Character, DAWGNode> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    SimpleEntry<Character, DAWGNode> next = new SimpleEntry<Character, DAWGNode>(letters[i], children[i]);
+                    i += desc ? -1 : 1;
+                    return next;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !parent.hasOutgoingTransitions();
+        }
+
+        @Override
+        public SemiNavigableMap<Character, DAWGNode> descendingMap() {
+            return new OutgoingTransitionsMap(parent, !desc);
+        }
+    }
+}
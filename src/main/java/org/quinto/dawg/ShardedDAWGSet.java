@@ -0,0 +1,370 @@
+package org.quinto.dawg;
+
+import org.quinto.dawg.util.LookaheadIterator;
+import org.quinto.dawg.util.SemiNavigableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.quinto.dawg.util.UnmodifiableNavigableSet;
+
+/**
+ * A DAWG that splits the words into ranges by a sorted array of boundaries, each range is kept in its own DAWG (shard).
+ * Shard {@code i} contains the words {@code w} such that {@code boundaries[i - 1] <= w < boundaries[i]}.<br>
+ * Prefix and range queries visit only the shards that may contain matching words.
+ * Every shard may be rebuilt separately (see {@link #rebuildShard}), several shards may be rebuilt in parallel
+ * (see {@link #rebuildShards}). So a set too large for a single {@link CompressedDAWGSet} may be kept
+ * as several compressed shards.<br>
+ * New shards are {@link ModifiableDAWGSet}s, rebuilt shards are {@link CompressedDAWGSet}s
+ * and don't support modification until they are replaced.<br>
+ * This class is not thread-safe.
+ */
+public class ShardedDAWGSet extends DAWGSet {
+    private final String boundaries[];
+
+    private final DAWGSet shards[];
+
+    private final boolean withIncomingTransitions;
+
+    /**
+     * Creates an empty DAWG with incoming transitions for fast suffix search.
+     * @param boundaries        strictly ascending first words of all the shards except the first one
+     */
+    public ShardedDAWGSet(String... boundaries) {
+        this(true, boundaries);
+    }
+
+    /**
+     * Creates an empty DAWG.
+     * @param withIncomingTransitions a flag indicating that the shards should store incoming transitions
+     * for fast suffix search
+     * @param boundaries        strictly ascending first words of all the shards except the first one
+     */
+    public ShardedDAWGSet(boolean withIncomingTransitions, String... boundaries) {
+        for (int i = 0; i < boundaries.length; i++) {
+            if (boundaries[i] == null)
+                throw new NullPointerException();
+            if (i > 0 && boundaries[i - 1].compareTo(boundaries[i]) >= 0)
+                throw new IllegalArgumentException("Boundaries should be strictly ascending");
+        }
+        this.withIncomingTransitions = withIncomingTransitions;
+        this.boundaries = boundaries.clone();
+        shards = new DAWGSet[boundaries.length + 1];
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new ModifiableDAWGSet(withIncomingTransitions);
+    }
+
+    /**
+     * Creates a DAWG from an iterable of Strings.
+     * @param withIncomingTransitions a flag indicating that the shards should store incoming transitions
+     * for fast suffix search
+     * @param strCollection     an {@link java.util.Iterable} containing Strings that the DAWG will contain
+     * @param boundaries        strictly ascending first words of all the shards except the first one
+     */
+    public ShardedDAWGSet(boolean withIncomingTransitions, Iterable<? extends String> strCollection, String... boundaries) {
+        this(withIncomingTransitions, boundaries);
+        addAll(strCollection);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public DAWGSet getShard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Determines the shard that contains a given word if it is present in this DAWG.
+     * @param str       a word
+     * @return          index of the shard
+     */
+    public int getShardIndex(String str) {
+        int pos = Arrays.binarySearch(boundaries, str);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    /**
+     * Replaces a shard.
+     * @param index     index of the shard
+     * @param shard     a DAWG containing only the words of the range of the shard
+     * @throws IllegalArgumentException if {@code shard} contains words outside of the range of the shard
+     */
+    public void setShard(int index, DAWGSet shard) {
+        if (!shard.isEmpty() && (getShardIndex(shard.first()) != index || getShardIndex(shard.last()) != index))
+            throw new IllegalArgumentException("The shard contains words outside of its range");
+        shards[index] = shard;
+    }
+
+    /**
+     * Builds a shard from scratch and replaces the old one. The words of other shards are not affected.
+     * @param index     index of the shard
+     * @param words     all the words of the range of the shard
+     * @throws IllegalArgumentException if {@code words} contain words outside of the range of the shard
+     */
+    public void rebuildShard(int index, Iterable<? extends String> words) {
+        setShard(index, buildShard(words));
+    }
+
+    /**
+     * Builds several shards in parallel and replaces the old ones when all of them are built.
+     * If any shard fails to build then no shards are replaced.
+     * @param words     words of every shard (the list should contain an element per shard),
+     *                  shards with null elements are not rebuilt
+     * @param executor  an executor to build the shards with
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     * @throws ExecutionException if building of a shard threw an exception
+     * @throws IllegalArgumentException if some words are outside of the range of their shard
+     */
+    public void rebuildShards(List<? extends Iterable<? extends String>> words, ExecutorService executor) throws InterruptedException, ExecutionException {
+        if (words.size() != shards.length)
+            throw new IllegalArgumentException("Expected words for " + shards.length + " shards, got " + words.size());
+        List<Future<CompressedDAWGSet>> futures = new ArrayList<Future<CompressedDAWGSet>>();
+        for (final Iterable<? extends String> shardWords : words) {
+            futures.add(shardWords == null ? null : executor.submit(new Callable<CompressedDAWGSet>() {
+                @Override
+                public CompressedDAWGSet call() {
+                    return buildShard(shardWords);
+                }
+            }));
+        }
+        CompressedDAWGSet built[] = new CompressedDAWGSet[shards.length];
+        try {
+            for (int i = 0; i < built.length; i++)
+                if (futures.get(i) != null)
+                    built[i] = futures.get(i).get();
+        } finally {
+            for (Future<CompressedDAWGSet> future : futures)
+                if (future != null)
+                    future.cancel(true);
+        }
+        for (int i = 0; i < built.length; i++)
+            if (built[i] != null && !built[i].isEmpty() && (getShardIndex(built[i].first()) != i || getShardIndex(built[i].last()) != i))
+                throw new IllegalArgumentException("Shard " + i + " contains words outside of its range");
+        for (int i = 0; i < built.length; i++)
+            if (built[i] != null)
+                shards[i] = built[i];
+    }
+
+    private CompressedDAWGSet buildShard(Iterable<? extends String> words) {
+        return new ModifiableDAWGSet(withIncomingTransitions, words).compress();
+    }
+
+    /**
+     * Creates a space-saving version of this DAWG as a single graph.
+     * @return an instance of {@link CompressedDAWGSet} containing all the words of this DAWG
+     */
+    public CompressedDAWGSet compress() {
+        return CompressedDAWGSet.merge(Arrays.asList(shards));
+    }
+
+    @Override
+    public boolean add(String str) {
+        return shards[getShardIndex(str)].add(str);
+    }
+
+    @Override
+    public boolean addAll(Iterable<? extends String> c) {
+        boolean ret = false;
+        for (String s : c)
+            ret |= add(s);
+        return ret;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> c) {
+        return addAll((Iterable<? extends String>)c);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        String str = (String)o;
+        return shards[getShardIndex(str)].remove(str);
+    }
+
+    /**
+     * Replaces all the shards with empty {@link ModifiableDAWGSet}s.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < shards.length; i++)
+            shards[i] = new ModifiableDAWGSet(withIncomingTransitions);
+    }
+
+    @Override
+    public boolean contains(Object str) {
+        String s = (String)str;
+        return shards[getShardIndex(s)].contains(s);
+    }
+
+    @Override
+    public int size() {
+        int ret = 0;
+        for (DAWGSet shard : shards)
+            ret += shard.size();
+        return ret;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (DAWGSet shard : shards)
+            if (!shard.isEmpty())
+                return false;
+        return true;
+    }
+
+    @Override
+    public Iterable<String> getStrings(final String prefixString, final String subString, final String suffixString, final boolean descending, final String fromString, final boolean inclFrom, final String toString, final boolean inclTo) {
+        int first = 0;
+        int last = shards.length - 1;
+        if (prefixString != null && !prefixString.isEmpty()) {
+            first = getShardIndex(prefixString);
+            // Boundaries starting with the prefix split the words with the prefix.
+            int prefixLast = first;
+            while (prefixLast < boundaries.length && boundaries[prefixLast].startsWith(prefixString))
+                prefixLast++;
+            last = prefixLast;
+        }
+        if (fromString != null)
+            first = Math.max(first, getShardIndex(fromString));
+        if (toString != null) {
+            int toShard = getShardIndex(toString);
+            if (!inclTo && toShard > 0 && boundaries[toShard - 1].equals(toString))
+                toShard--;
+            last = Math.min(last, toShard);
+        }
+        final int firstShard = first;
+        final int lastShard = last;
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new LookaheadIterator<String>() {
+                    private int shard = descending ? lastShard + 1 : firstShard - 1;
+                    private Iterator<String> it;
+
+                    @Override
+                    public String nextElement() {
+                        while (it == null || !it.hasNext()) {
+                            shard += descending ? -1 : 1;
+                            if (shard < firstShard || shard > lastShard)
+                                throw NO_SUCH_ELEMENT_EXCEPTION;
+                            it = shards[shard].getStrings(prefixString, subString, suffixString, descending, fromString, inclFrom, toString, inclTo).iterator();
+                        }
+                        return it.next();
+                    }
+
+                    @Override
+                    public void remove(String word) {
+                        ShardedDAWGSet.this.remove(word);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public String determineLongestPrefixInDAWG(String str) {
+        String ret = "";
+        for (DAWGSet shard : shards) {
+            String prefix = shard.determineLongestPrefixInDAWG(str);
+            if (prefix.length() > ret.length())
+                ret = prefix;
+        }
+        return ret;
+    }
+
+    @Override
+    public String toGraphViz(boolean withNodeIds, boolean withIncomingTransitions) {
+        return compress().toGraphViz(withNodeIds, withIncomingTransitions);
+    }
+
+    @Override
+    public boolean isWithIncomingTransitions() {
+        for (DAWGSet shard : shards)
+            if (!shard.isWithIncomingTransitions())
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return false;
+    }
+
+    /**
+     * Returns the quantity of transitions in all the shards of this DAWG.
+     * @return quantity of transitions
+     */
+    @Override
+    public int getTransitionCount() {
+        int ret = 0;
+        for (DAWGSet shard : shards)
+            ret += shard.getTransitionCount();
+        return ret;
+    }
+
+    /**
+     * Returns the quantity of nodes in all the shards of this DAWG.
+     * @return quantity of nodes
+     */
+    @Override
+    public int getNodeCount() {
+        int ret = 0;
+        for (DAWGSet shard : shards)
+            ret += shard.getNodeCount();
+        return ret;
+    }
+
+    @Override
+    public NavigableSet<Character> getAlphabet() {
+        NavigableSet<Character> alphabet = new TreeSet<Character>();
+        for (DAWGSet shard : shards)
+            alphabet.addAll(shard.getAlphabet());
+        return new UnmodifiableNavigableSet<Character>(alphabet);
+    }
+
+    @Override
+    int getMaxLength() {
+        int ret = 0;
+        for (DAWGSet shard : shards)
+            ret = Math.max(ret, shard.getMaxLength());
+        return ret;
+    }
+
+    @Override
+    SemiNavigableMap<Character, DAWGNode> getOutgoingTransitions(DAWGNode parent) {
+        return null;
+    }
+
+    @Override
+    SemiNavigableMap<Character, Collection<? extends DAWGNode>> getIncomingTransitions(DAWGNode parent) {
+        return null;
+    }
+
+    @Override
+    DAWGNode getSourceNode() {
+        return null;
+    }
+
+    @Override
+    DAWGNode getEndNode() {
+        return null;
+    }
+
+    @Override
+    DAWGNode getEmptyNode() {
+        return null;
+    }
+
+    @Override
+    Collection<? extends DAWGNode> getNodesBySuffix(String suffix) {
+        return null;
+    }
+}
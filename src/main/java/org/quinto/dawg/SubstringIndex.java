@@ -0,0 +1,173 @@
+package org.quinto.dawg;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.quinto.dawg.util.SimpleEntry;
+import org.quinto.dawg.util.SubstringMatcher;
+
+/**
+ * An index of a {@link CompressedDAWGSet} that makes substring search output-sensitive.
+ * For every letter it stores the states having an outgoing transition labeled with that letter,
+ * and for every state it stores its parent states.<br>
+ * A substring query finds the states where the substring may start, and the ancestors of those states.
+ * The traversal doesn't enter the nodes from which no match is reachable.
+ */
+class SubstringIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    //Sorted state keys of all the states. A state is identified by its position in this array.
+    private final long stateKeys[];
+
+    //Index of some record of every state in the outgoing data array.
+    private final int stateRecords[];
+
+    //States having an outgoing transition labeled with letters[i] are starts[startsBegin[i]..startsBegin[i + 1]).
+    private final int startsBegin[];
+    private final int starts[];
+
+    //Parents of state i are parents[parentsBegin[i]..parentsBegin[i + 1]).
+    private final int parentsBegin[];
+    private final int parents[];
+
+    SubstringIndex(CompressedDAWGSet graph) {
+        //Enumerate the states.
+        Set<Long> keys = new HashSet<Long>();
+        Deque<CompressedDAWGNode> stack = new ArrayDeque<CompressedDAWGNode>();
+        stack.add(graph.getSourceNode());
+        keys.add(graph.getSourceNode().getStateKey());
+        int transitionCount = 0;
+        while (!stack.isEmpty()) {
+            CompressedDAWGNode node = stack.pollLast();
+            for (SimpleEntry<Character, DAWGNode> transition : graph.getOutgoingTransitions(node)) {
+                transitionCount++;
+                CompressedDAWGNode child = (CompressedDAWGNode)transition.getValue();
+                if (keys.add(child.getStateKey()))
+                    stack.add(child);
+            }
+        }
+        stateKeys = new long[keys.size()];
+        int i = 0;
+        for (long key : keys)
+            stateKeys[i++] = key;
+        Arrays.sort(stateKeys);
+        stateRecords = new int[stateKeys.length];
+        //Collect the transitions as pairs (letter, parent) and (child, parent).
+        Map<Character, Integer> lettersIndex = graph.getLettersIndex();
+        long letterStarts[] = new long[transitionCount];
+        long childParents[] = new long[transitionCount];
+        int t = 0;
+        BitSet visited = new BitSet(stateKeys.length);
+        CompressedDAWGNode source = graph.getSourceNode();
+        stack.add(source);
+        visited.set(getState(source));
+        while (!stack.isEmpty()) {
+            CompressedDAWGNode node = stack.pollLast();
+            int state = getState(node);
+            stateRecords[state] = node.getIndex();
+            for (SimpleEntry<Character, DAWGNode> transition : graph.getOutgoingTransitions(node)) {
+                CompressedDAWGNode child = (CompressedDAWGNode)transition.getValue();
+                int childState = getState(child);
+                letterStarts[t] = (long)lettersIndex.get(transition.getKey()) << 32 | state;
+                childParents[t++] = (long)childState << 32 | state;
+                if (!visited.get(childState)) {
+                    visited.set(childState);
+                    stack.add(child);
+                }
+            }
+        }
+        startsBegin = new int[graph.letters.length + 1];
+        starts = toCompressedRows(letterStarts, startsBegin);
+        parentsBegin = new int[stateKeys.length + 1];
+        parents = toCompressedRows(childParents, parentsBegin);
+    }
+
+    /**
+     * Converts pairs (row, value) into the compressed sparse row format. Duplicate pairs are removed.
+     */
+    private static int[] toCompressedRows(long pairs[], int rowsBegin[]) {
+        Arrays.sort(pairs);
+        int count = 0;
+        for (int i = 0; i < pairs.length; i++)
+            if (i == 0 || pairs[i] != pairs[i - 1])
+                pairs[count++] = pairs[i];
+        int values[] = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (int)pairs[i];
+            rowsBegin[(int)(pairs[i] >>> 32) + 1]++;
+        }
+        for (int i = 1; i < rowsBegin.length; i++)
+            rowsBegin[i] += rowsBegin[i - 1];
+        return values;
+    }
+
+    private int getState(DAWGNode node) {
+        return Arrays.binarySearch(stateKeys, node.getStateKey());
+    }
+
+    /**
+     * Prepares a substring query.
+     * @param graph     the DAWG this index was built for
+     * @param substring a non-empty String that should be contained in the words
+     * @return          a filter of the nodes to be visited while the substring is not found yet
+     */
+    Filter createFilter(CompressedDAWGSet graph, String substring) {
+        BitSet ancestors = new BitSet(stateKeys.length);
+        Integer letter = graph.getLettersIndex().get(substring.charAt(0));
+        if (letter != null) {
+            Deque<Integer> queue = new ArrayDeque<Integer>();
+            for (int i = startsBegin[letter]; i < startsBegin[letter + 1]; i++) {
+                int state = starts[i];
+                if (graph.createNode(stateRecords[state]).transition(substring) != null) {
+                    ancestors.set(state);
+                    queue.add(state);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int i = parentsBegin[state]; i < parentsBegin[state + 1]; i++) {
+                    int parent = parents[i];
+                    if (!ancestors.get(parent)) {
+                        ancestors.set(parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+        }
+        return new Filter(substring, ancestors);
+    }
+
+    final class Filter {
+        final SubstringMatcher matcher;
+
+        //States from which the substring may be read from the beginning, and their ancestors.
+        private final BitSet ancestors;
+
+        private Filter(String substring, BitSet ancestors) {
+            matcher = new SubstringMatcher(substring);
+            this.ancestors = ancestors;
+        }
+
+        /**
+         * Determines if a word containing the substring may be reached from a node.
+         * @param node          a node of the DAWG
+         * @param matchState    the state of the {@link #matcher} after reading the path to the node
+         * @return              false if no word reachable from the node contains the substring
+         */
+        boolean isPossible(DAWGNode node, int matchState) {
+            if (matchState == matcher.length() || ancestors.get(getState(node)))
+                return true;
+            //The substring may continue the partial match or one of its borders.
+            String substring = matcher.getPattern();
+            for (int state = matchState; state > 0; state = matcher.border(state))
+                if (node.transition(substring.substring(state)) != null)
+                    return true;
+            return false;
+        }
+    }
+}
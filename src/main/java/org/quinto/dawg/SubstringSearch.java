@@ -0,0 +1,112 @@
+package org.quinto.dawg;
+
+import org.quinto.dawg.util.LongHashSet;
+import org.quinto.dawg.util.SimpleEntry;
+import org.quinto.dawg.util.SubstringMatcher;
+
+/**
+ * Decides if words containing (or ending with) a pattern are reachable from a node of a DAWG
+ * after reading a path that left a {@link SubstringMatcher} in a given state.<br>
+ * Answers are memoized per (state of the node, state of the matcher). Nodes of a DAWG are shared by many paths,
+ * so a subgraph without matches is traversed only once for every state of the matcher.
+ * If the DAWG has a {@link SubstringIndex} then it is used for substring search instead.
+ * If the DAWG can find the nodes leading to words with a given suffix by walking back from the suffix
+ * (see {@link DAWGSet#getSuffixAncestors}) then they are used for suffix search instead,
+ * so a traversal starting at a prefix meets the backward search halfway.
+ */
+class SubstringSearch {
+    private final DAWGSet graph;
+
+    final SubstringMatcher matcher;
+
+    //True if the words should end with the pattern, false if they should contain it.
+    private final boolean suffix;
+
+    private final String pattern;
+
+    private final SubstringIndex.Filter filter;
+
+    //State keys of the nodes from which the pattern may be read to the end of a word.
+    private final LongHashSet suffixAncestors;
+
+    //Keys of the node states from which matching words are reachable (possible) or not (impossible) per matcher state.
+    private final LongHashSet possible[];
+    private final LongHashSet impossible[];
+
+    /**
+     * Prepares a search.
+     * @param graph     a DAWG to search in
+     * @param pattern   a non-empty String
+     * @param suffix    true if the words should end with {@code pattern}, false if they should contain it
+     */
+    SubstringSearch(DAWGSet graph, String pattern, boolean suffix) {
+        this.graph = graph;
+        this.suffix = suffix;
+        this.pattern = pattern;
+        filter = suffix ? null : graph.getSubstringFilter(pattern);
+        suffixAncestors = suffix ? graph.getSuffixAncestors(pattern) : null;
+        matcher = filter == null ? new SubstringMatcher(pattern) : filter.matcher;
+        possible = new LongHashSet[pattern.length() + 1];
+        impossible = new LongHashSet[pattern.length() + 1];
+    }
+
+    int next(int state, char c) {
+        return suffix ? matcher.step(state, c) : matcher.next(state, c);
+    }
+
+    int next(int state, String str) {
+        for (int i = 0; i < str.length(); i++)
+            state = next(state, str.charAt(i));
+        return state;
+    }
+
+    /**
+     * Determines if the path read so far contains the pattern (or ends with it in case of suffix search).
+     * @param state     a state of the matcher
+     * @return          true if the pattern is found
+     */
+    boolean isFound(int state) {
+        return state == matcher.length();
+    }
+
+    /**
+     * Determines if a matching word may be reached from a node.
+     * @param node      a node of the DAWG
+     * @param state     the state of the {@link #matcher} after reading the path to the node
+     * @return          false if no word reachable from the node matches
+     */
+    boolean isPossible(DAWGNode node, int state) {
+        if (isFound(state) && (!suffix || node.isAcceptNode()))
+            return true;
+        if (filter != null)
+            return filter.isPossible(node, state);
+        if (suffixAncestors != null) {
+            if (suffixAncestors.contains(node.getStateKey()))
+                return true;
+            //The suffix may continue the partial match or one of its borders.
+            for (int matched = state; matched > 0; matched = matcher.border(matched)) {
+                DAWGNode end = node.transition(pattern.substring(matched));
+                if (end != null && end.isAcceptNode())
+                    return true;
+            }
+            return false;
+        }
+        long key = node.getStateKey();
+        if (possible[state] != null && possible[state].contains(key))
+            return true;
+        if (impossible[state] != null && impossible[state].contains(key))
+            return false;
+        boolean ret = false;
+        for (SimpleEntry<Character, DAWGNode> transition : graph.getOutgoingTransitions(node)) {
+            if (isPossible(transition.getValue(), next(state, transition.getKey()))) {
+                ret = true;
+                break;
+            }
+        }
+        LongHashSet memo[] = ret ? possible : impossible;
+        if (memo[state] == null)
+            memo[state] = new LongHashSet();
+        memo[state].add(key);
+        return ret;
+    }
+}
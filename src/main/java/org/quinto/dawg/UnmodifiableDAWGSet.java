@@ -68,6 +68,11 @@ class UnmodifiableDAWGSet extends DAWGSet {
         return 0;
     }
 
+    @Override
+    int getKeyCount() {
+        return delegate.getKeyCount();
+    }
+
     @Override
     public NavigableSet<Character> getAlphabet() {
         // Delegate's alphabet is unmodifiable.
@@ -0,0 +1,104 @@
+package org.quinto.dawg.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs with open addressing and linear probing.
+ * It doesn't box its elements, so it is suitable for memoization of large quantities of keys.
+ */
+public class LongHashSet {
+    private static final long FREE = 0L;
+
+    private long keys[];
+
+    //Zero marks a free cell of keys array, so it is stored separately.
+    private boolean containsFree;
+
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        keys = new long[capacity];
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int)key;
+    }
+
+    /**
+     * Adds a value to this set.
+     * @param value     a value
+     * @return          true if the set didn't contain the value
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            if (containsFree)
+                return false;
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int pos = hash(value) & mask;
+        while (keys[pos] != FREE) {
+            if (keys[pos] == value)
+                return false;
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = value;
+        size++;
+        if (size * 2 > keys.length)
+            rehash();
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == FREE)
+            return containsFree;
+        int mask = keys.length - 1;
+        int pos = hash(value) & mask;
+        while (keys[pos] != FREE) {
+            if (keys[pos] == value)
+                return true;
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    private void rehash() {
+        long oldKeys[] = keys;
+        keys = new long[oldKeys.length << 1];
+        int mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key != FREE) {
+                int pos = hash(key) & mask;
+                while (keys[pos] != FREE)
+                    pos = (pos + 1) & mask;
+                keys[pos] = key;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        containsFree = false;
+        size = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package org.quinto.dawg.util;
+
+/**
+ * Knuth-Morris-Pratt matcher of a single pattern.
+ * A state of the matcher is the length of the longest prefix of the pattern that is a suffix of the text read so far.
+ * The state equal to the pattern length means that the pattern is found.
+ */
+public class SubstringMatcher {
+    private final char pattern[];
+
+    //borders[i] is the length of the longest proper prefix of pattern[0..i) that is also its suffix.
+    private final int borders[];
+
+    public SubstringMatcher(String pattern) {
+        this.pattern = pattern.toCharArray();
+        borders = new int[this.pattern.length + 1];
+        int border = 0;
+        for (int i = 1; i < this.pattern.length; i++) {
+            while (border > 0 && this.pattern[i] != this.pattern[border])
+                border = borders[border];
+            if (this.pattern[i] == this.pattern[border])
+                border++;
+            borders[i + 1] = border;
+        }
+    }
+
+    public String getPattern() {
+        return String.valueOf(pattern);
+    }
+
+    public int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Returns the length of the longest proper prefix of the matched part of the pattern that is also its suffix.
+     * @param state     a state of the matcher
+     * @return          the next state to try if the current one can't be continued
+     */
+    public int border(int state) {
+        return borders[state];
+    }
+
+    /**
+     * Reads a character.
+     * @param state     a state of the matcher
+     * @param c         the next character of the text
+     * @return          the state after reading {@code c}; the state that was found once remains found
+     */
+    public int next(int state, char c) {
+        if (state == pattern.length)
+            return state;
+        return step(state, c);
+    }
+
+    /**
+     * Reads a character continuing the search after the pattern is found.
+     * @param state     a state of the matcher
+     * @param c         the next character of the text
+     * @return          the state after reading {@code c}; it equals to the pattern length iff the text read so far
+     *                  ends with the pattern
+     */
+    public int step(int state, char c) {
+        if (pattern.length == 0)
+            return 0;
+        if (state == pattern.length)
+            state = borders[state];
+        while (state > 0 && pattern[state] != c)
+            state = borders[state];
+        return pattern[state] == c ? state + 1 : 0;
+    }
+
+    /**
+     * Reads a String.
+     * @param state     a state of the matcher
+     * @param str       the next characters of the text
+     * @return          the state after reading {@code str}
+     */
+    public int next(int state, String str) {
+        for (int i = 0; i < str.length() && state < pattern.length; i++)
+            state = next(state, str.charAt(i));
+        return state;
+    }
+}
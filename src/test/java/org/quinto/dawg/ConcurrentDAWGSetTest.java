@@ -0,0 +1,89 @@
+package org.quinto.dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentDAWGSetTest {
+    @Test
+    public void snapshotIterator() {
+        ConcurrentDAWGSet dawg = new ConcurrentDAWGSet(new ModifiableDAWGSet(false, new TreeSet<String>(Arrays.asList("a", "b", "c"))));
+        Iterator<String> it = dawg.iterator();
+        assertEquals("a", it.next());
+        dawg.add("bb");
+        dawg.remove("c");
+        assertEquals("b", it.next());
+        assertEquals("c", it.next());
+        assertFalse(it.hasNext());
+        assertEquals(new TreeSet<String>(Arrays.asList("a", "b", "bb")), dawg);
+
+        it = dawg.iterator();
+        it.next();
+        it.remove();
+        assertEquals("b", it.next());
+        assertFalse(dawg.contains("a"));
+        assertTrue(dawg.retainAll(Arrays.asList("bb")));
+        assertEquals("bb", dawg.pollFirst());
+        assertNull(dawg.pollLast());
+    }
+
+    @Test
+    public void concurrentReadersAndWriter() throws InterruptedException {
+        final ConcurrentDAWGMap map = new ConcurrentDAWGMap();
+        final int keys = 50;
+        for (int i = 0; i < keys; i++)
+            map.put("key" + i, "0");
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicBoolean done = new AtomicBoolean();
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (!done.get()) {
+                            // Every key has exactly one value at any moment.
+                            assertEquals(keys, map.size());
+                            NavigableSet<String> keySet = map.navigableKeySet();
+                            int count = 0;
+                            for (String key : keySet) {
+                                assertTrue(map.get(key) != null);
+                                count++;
+                            }
+                            assertEquals(keys, count);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        for (Thread reader : readers)
+            reader.start();
+        for (int round = 1; round <= 200; round++)
+            for (int i = 0; i < keys; i++)
+                map.put("key" + i, String.valueOf(round));
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+        assertEquals("200", map.get("key0"));
+        DAWGMap snapshot = map.snapshot();
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(keys, snapshot.size());
+        assertEquals("200", snapshot.get("key" + (keys - 1)));
+        assertTrue(map.compress().isEmpty());
+    }
+}
@@ -11,12 +11,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 public class DAWGMapOfStringSetsTest {
@@ -108,6 +111,30 @@ public class DAWGMapOfStringSetsTest {
         map.put("baa", asSet("value"));
     }
     
+    @Test
+    public void getOutOfRange() {
+        ModifiableDAWGMapOfStringSets dawg = new ModifiableDAWGMapOfStringSets();
+        dawg.put("baa", "value");
+        dawg.put("bad", "value");
+        NavigableMap<String, Set<String>> map = dawg.subMap("bac", "baw");
+        for (NavigableMap<String, Set<String>> m : Arrays.asList(map, map.descendingMap(), dawg.tailMap("bac", false), dawg.headMap("baa", false))) {
+            Set<String> values = m.get("baa");
+            assertTrue(values.isEmpty());
+            assertEquals(0, values.size());
+            assertFalse(values.contains("value"));
+            assertFalse(values.iterator().hasNext());
+            values.clear();
+            try {
+                values.add("value");
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        assertEquals(asSet("value"), map.get("bad"));
+        assertEquals(asSet("value"), dawg.get("baa"));
+        assertEquals(2, dawg.size());
+    }
+    
     private static List<String> concat(Entry<String, Set<String>> e) {
         List<String> ret = new ArrayList<String>();
         for (String value : e.getValue())
@@ -161,4 +188,110 @@ public class DAWGMapOfStringSetsTest {
         assertEquals("key", dawg.headMap("key", true).navigableKeySet().descendingIterator().next());
         assertEquals("kexy", dawg.headMap("key", false).navigableKeySet().descendingIterator().next());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void keysWithManyValues() throws IOException, ClassNotFoundException {
+        ModifiableDAWGMapOfStringSets dawg = new ModifiableDAWGMapOfStringSets();
+        List<String> keys = asList("", "a", "ab", "abc", "b", "ba", "c");
+        for (String key : keys)
+            for (int i = 0; i < 1000; i++)
+                dawg.put(key, "v" + i);
+        assertEquals(keys.size(), dawg.size());
+        assertEquals(keys, new ArrayList<String>(dawg.keySet()));
+        List<String> reversed = new ArrayList<String>(keys);
+        Collections.reverse(reversed);
+        assertEquals(reversed, new ArrayList<String>(dawg.descendingKeySet()));
+        assertEquals(reversed, new ArrayList<String>(dawg.descendingMap().keySet()));
+        assertEquals(keys, new ArrayList<String>(dawg.descendingMap().descendingKeySet()));
+        assertEquals(asList("ab", "abc", "b"), new ArrayList<String>(dawg.subMap("ab", true, "b", true).keySet()));
+        assertEquals(asList("ba", "b", "abc"), new ArrayList<String>(dawg.subMap("ab", false, "ba", true).descendingMap().keySet()));
+        assertEquals(asList("a", "ab", "abc"), new ArrayList<String>(dawg.prefixMap("a").keySet()));
+        int count = 0;
+        for (Entry<String, Set<String>> e : dawg.descendingMap().entrySet()) {
+            assertEquals(reversed.get(count++), e.getKey());
+            assertEquals(1000, e.getValue().size());
+        }
+        assertEquals(keys.size(), count);
+        
+        CompressedDAWGMapOfStringSets cdawg = dawg.compress();
+        assertEquals(keys.size(), cdawg.size());
+        assertEquals(keys, new ArrayList<String>(cdawg.keySet()));
+        assertEquals(keys.size(), Serializer.serializeAndRead(cdawg).size());
+        ModifiableDAWGMapOfStringSets uncompressed = cdawg.uncompress();
+        uncompressed.remove("abc");
+        uncompressed.put("d", "v0");
+        uncompressed.put("d", "v1");
+        assertEquals(keys.size(), uncompressed.size());
+        assertEquals(keys.size(), uncompressed.compress().size());
+        
+        assertTrue(dawg.get("ab").remove("v0"));
+        assertEquals(keys.size(), dawg.size());
+        dawg.remove("ab");
+        assertEquals(keys.size() - 1, dawg.size());
+        dawg.put("ab", "v0");
+        assertEquals(keys.size(), dawg.size());
+        dawg.get("ab").remove("v0");
+        assertEquals(keys.size() - 1, dawg.size());
+        for (int i = 0; i < 1000; i++)
+            dawg.get("").remove("v" + i);
+        assertEquals(keys.size() - 2, dawg.size());
+        assertEquals(asList("a", "abc", "b", "ba", "c"), new ArrayList<String>(dawg.keySet()));
+        dawg.values().iterator().next().clear();
+        assertEquals(asList("abc", "b", "ba", "c"), new ArrayList<String>(dawg.keySet()));
+        assertEquals(4, dawg.size());
+        dawg.clear();
+        assertEquals(0, dawg.size());
+        
+        Random random = new Random(System.nanoTime());
+        Map<String, Set<String>> expected = new HashMap<String, Set<String>>();
+        for (int i = 0; i < 3000; i++) {
+            String key = Integer.toString(random.nextInt(20), 3);
+            String value = Integer.toString(random.nextInt(10), 2);
+            Set<String> values = expected.get(key);
+            if (random.nextBoolean()) {
+                if (values == null)
+                    expected.put(key, values = new HashSet<String>());
+                assertEquals(values.add(value), dawg.put(key, value));
+            } else {
+                assertEquals(values != null && values.remove(value), dawg.get(key).remove(value));
+                if (values != null && values.isEmpty())
+                    expected.remove(key);
+            }
+            assertEquals(expected.size(), dawg.size());
+        }
+        assertEquals(expected.size(), dawg.compress().size());
+        assertEquals(new TreeSet<String>(expected.keySet()), dawg.keySet());
+    }
+    
+    @Test
+    public void removeKeyWithManyValues() {
+        for (boolean withIncomingTransitions : new boolean[]{false, true}) {
+            ModifiableDAWGMapOfStringSets dawg = new ModifiableDAWGMapOfStringSets(withIncomingTransitions);
+            Map<String, Set<String>> expected = new TreeMap<String, Set<String>>();
+            List<String> keys = asList("a", "ab", "abc", "b", "bb", "c");
+            for (int k = 0; k < keys.size(); k++) {
+                Set<String> values = new TreeSet<String>();
+                // Keys share some of the values, so the subgraphs of the values share nodes.
+                for (int i = k * 300; i < 5000 + k * 300; i++)
+                    values.add(Integer.toString(i));
+                expected.put(keys.get(k), values);
+                dawg.putAll(keys.get(k), values);
+            }
+            for (String key : asList("ab", "c", "a", "x", "bb")) {
+                Set<String> removed = expected.remove(key);
+                assertEquals(removed == null ? Collections.EMPTY_SET : removed, dawg.remove(key));
+                assertEquals(expected.size(), dawg.size());
+                assertEquals(expected.keySet(), dawg.keySet());
+                ModifiableDAWGMapOfStringSets control = new ModifiableDAWGMapOfStringSets(withIncomingTransitions);
+                control.putAll(expected);
+                assertEquals(control.flatSize(), dawg.flatSize());
+                assertEquals(control.dawg.getNodeCount(), dawg.dawg.getNodeCount());
+                assertEquals(control.dawg.getTransitionCount(), dawg.dawg.getTransitionCount());
+                assertEquals(new ArrayList<String>(control.dawg), new ArrayList<String>(dawg.dawg));
+            }
+            assertEquals(expected.get("abc"), dawg.put("abc", asSet("x")));
+            assertTrue(dawg.get("abc").contains("x"));
+            assertEquals(expected.get("abc").size() + 1, dawg.get("abc").size());
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package org.quinto.dawg;
 
 import org.quinto.dawg.util.Serializer;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.TreeMap;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Test;
 
 public class DAWGMapTest {
+    private static final Random RANDOM = new Random(System.nanoTime());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
     @Test
     public void putSimple() throws IOException, ClassNotFoundException {
         ModifiableDAWGMap dawg = new ModifiableDAWGMap();
@@ -125,6 +137,248 @@ public class DAWGMapTest {
         assertEquals("kexy", dawg.headMap("key", false).navigableKeySet().descendingIterator().next());
     }
     
+    @Test
+    public void reversedWords() throws IOException, ClassNotFoundException {
+        ModifiableDAWGMap dawg = new ModifiableDAWGMap(false);
+        dawg.put("a", "value");
+        dawg.put("b", "other value");
+        dawg.put("c", "value");
+        CompressedDAWGMap cdawg = dawg.compress().withReversedWords();
+        assertEquals(dawg, cdawg);
+        assertTrue(cdawg.containsValue("value"));
+        assertTrue(cdawg.containsValue("other value"));
+        assertFalse(cdawg.containsValue("alue"));
+        assertFalse(cdawg.containsValue("other"));
+        CompressedDAWGMap serialized = Serializer.serializeAndRead(cdawg);
+        assertTrue(serialized.containsValue("other value"));
+        assertTrue(((CompressedDAWGSet)serialized.dawg).isWithReversedWords());
+    }
+    
+    @Test
+    public void indexedMap() throws IOException, ClassNotFoundException {
+        ModifiableDAWGMap dawg = new ModifiableDAWGMap();
+        TreeMap<String, String> map = new TreeMap<String, String>();
+        String values[] = {"", "alias", "other alias", "third"};
+        for (int i = 0; i < 1000; i++) {
+            String key = Integer.toString(i * 7919 % 1009, 36);
+            String value = values[i % values.length];
+            dawg.put(key, value);
+            map.put(key, value);
+        }
+        CompressedDAWGIndexedMap indexed = dawg.compressIndexed();
+        assertEquals(map, indexed);
+        assertEquals(indexed, map);
+        assertEquals(new ArrayList<String>(map.keySet()), new ArrayList<String>(indexed.keySet()));
+        assertEquals(new ArrayList<String>(map.values()), new ArrayList<String>(indexed.values()));
+        assertEquals(values.length, indexed.getDistinctValues().size());
+        for (Entry<String, String> e : map.entrySet()) {
+            assertEquals(e.getValue(), indexed.get(e.getKey()));
+            assertTrue(indexed.containsKey(e.getKey()));
+        }
+        assertEquals(null, indexed.get("missing"));
+        assertFalse(indexed.containsKey("missing"));
+        assertTrue(indexed.containsValue("other alias"));
+        assertFalse(indexed.containsValue("other"));
+        assertEquals(map, Serializer.serializeAndRead(indexed));
+        assertTrue(new ModifiableDAWGMap().compressIndexed().isEmpty());
+    }
+    
+    @Test
+    public void columnMap() throws IOException, ClassNotFoundException {
+        Map<String, Integer> ints = new HashMap<String, Integer>();
+        Map<String, Long> longs = new HashMap<String, Long>();
+        Map<String, Double> doubles = new HashMap<String, Double>();
+        Map<String, int[]> objects = new HashMap<String, int[]>();
+        for (int i = 0; i < 1000; i++) {
+            String key = Integer.toString(i * 7919 % 1009, 36);
+            ints.put(key, i);
+            longs.put(key, i * 10000000000L);
+            doubles.put(key, i / 4.0);
+            objects.put(key, new int[]{i});
+        }
+        CompressedDAWGColumnMap<Integer> intMap = CompressedDAWGColumnMap.ofInts(ints);
+        CompressedDAWGColumnMap<Long> longMap = CompressedDAWGColumnMap.ofLongs(longs);
+        CompressedDAWGColumnMap<Double> doubleMap = CompressedDAWGColumnMap.ofDoubles(doubles);
+        CompressedDAWGColumnMap<int[]> objectMap = CompressedDAWGColumnMap.of(objects);
+        assertEquals(ints, intMap);
+        assertEquals(longs, longMap);
+        assertEquals(doubles, doubleMap);
+        assertEquals(new TreeMap<String, Integer>(ints).keySet(), intMap.keySet());
+        for (String key : ints.keySet()) {
+            assertEquals((int)ints.get(key), intMap.getInt(key));
+            assertEquals((long)ints.get(key), intMap.getLong(key));
+            assertEquals((long)longs.get(key), longMap.getLong(key));
+            assertEquals(doubles.get(key), doubleMap.getDouble(key), 0.0);
+            assertEquals(objects.get(key)[0], objectMap.get(key)[0]);
+        }
+        assertEquals(null, intMap.get("missing"));
+        assertFalse(intMap.containsKey("missing"));
+        assertEquals(ints, Serializer.serializeAndRead(intMap));
+        try {
+            intMap.getInt("missing");
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+        try {
+            longMap.getInt("1");
+            fail();
+        } catch (ClassCastException e) {
+        }
+    }
+    
+    @Test
+    public void putAndRemoveInPlace() {
+        for (ModifiableDAWGSet set : new ModifiableDAWGSet[]{new ModifiableDAWGSet(false), new ModifiableDAWGSet(true), new ModifiableDAWGSet(true, true)}) {
+            ModifiableDAWGMap dawg = new ModifiableDAWGMap(set);
+            TreeMap<String, String> map = new TreeMap<String, String>();
+            String values[] = {"", "a", "ab", "bab", "session", "abab"};
+            for (int i = 0; i < 3000; i++) {
+                String key = Integer.toString(RANDOM.nextInt(200), 3);
+                if (RANDOM.nextInt(4) > 0) {
+                    String value = values[RANDOM.nextInt(values.length)];
+                    assertEquals(map.put(key, value), dawg.put(key, value));
+                } else
+                    assertEquals(map.remove(key), dawg.remove(key));
+                if (i % 500 == 0)
+                    assertEquals(map, dawg);
+            }
+            assertEquals(map, dawg);
+            assertEquals(map.size(), dawg.size());
+            for (String key : map.keySet()) {
+                assertTrue(dawg.containsKey(key));
+                assertEquals(map.get(key), dawg.get(key));
+            }
+            assertFalse(dawg.containsKey("3"));
+            assertEquals(null, dawg.get("3"));
+            for (String value : values)
+                assertEquals(map.containsValue(value), dawg.containsValue(value));
+            ModifiableDAWGSet fresh = new ModifiableDAWGSet(false);
+            for (Entry<String, String> e : map.entrySet())
+                fresh.add(e.getKey() + AbstractDAWGMap.KEY_VALUE_SEPARATOR + e.getValue());
+            assertEquals(fresh, set);
+            assertEquals(map, dawg.compress());
+        }
+    }
+    
+    @Test
+    public void longMap() throws IOException, ClassNotFoundException {
+        TreeMap<String, Long> map = new TreeMap<String, Long>();
+        long offset = 0L;
+        for (int i = 0; i < 3000; i++) {
+            String key = "http://" + Integer.toString(RANDOM.nextInt(100000), 36) + (RANDOM.nextBoolean() ? ".com/" : ".org/index.html");
+            if (!map.containsKey(key)) {
+                map.put(key, offset);
+                offset += 1 + RANDOM.nextInt(1 << 20);
+            }
+        }
+        map.put("", 5L);
+        map.put("http://", Long.MAX_VALUE);
+        CompressedDAWGLongMap longMap = CompressedDAWGLongMap.of(map);
+        assertEquals(map, longMap);
+        assertEquals(new ArrayList<Entry<String, Long>>(map.entrySet()), new ArrayList<Entry<String, Long>>(longMap.entrySet()));
+        for (Entry<String, Long> e : map.entrySet())
+            assertEquals((long)e.getValue(), longMap.get(e.getKey(), -1L));
+        assertEquals(-1L, longMap.get("http://x", -1L));
+        assertEquals(null, longMap.get("http:/"));
+        assertFalse(longMap.containsKey("http:"));
+        assertEquals(map, Serializer.serializeAndRead(longMap));
+        assertTrue(CompressedDAWGLongMap.of(new TreeMap<String, Long>()).isEmpty());
+        
+        //Distinct outputs don't prevent suffix sharing.
+        TreeMap<String, Long> suffixes = new TreeMap<String, Long>();
+        for (char c = 'a'; c <= 'z'; c++)
+            suffixes.put(c + ".example.com", (long)c * 1000);
+        CompressedDAWGLongMap suffixMap = CompressedDAWGLongMap.of(suffixes);
+        assertEquals(suffixes, suffixMap);
+        assertEquals(".example.com".length() + 2, suffixMap.getNodeCount());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void longMapUnsorted() {
+        CompressedDAWGLongMap.of(Arrays.asList(new SimpleEntry<String, Long>("b", 1L), new SimpleEntry<String, Long>("a", 2L)));
+    }
+    
+    @Test
+    public void load() throws IOException {
+        HashMap<String, String> map = new HashMap<String, String>();
+        StringBuilder tsv = new StringBuilder();
+        String values[] = {"", "a", "ab", "bab", "session", "abab"};
+        for (int i = 0; i < 2000; i++)
+            map.put(Integer.toString(RANDOM.nextInt(1000), 3), values[RANDOM.nextInt(values.length)]);
+        map.put("", "empty");
+        //Non-ASCII words are read in the given charset.
+        map.put("\u00e9t\u00e9", "\u043b\u0435\u0442\u043e");
+        ModifiableDAWGMap expected = new ModifiableDAWGMap();
+        expected.putAll(map);
+        TreeMap<String, String> sorted = new TreeMap<String, String>(map);
+        for (Entry<String, String> e : sorted.entrySet())
+            tsv.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        for (CompressedDAWGMap dawg : Arrays.asList(
+                ModifiableDAWGMap.load(map),
+                ModifiableDAWGMap.load(sorted),
+                ModifiableDAWGMap.load(sorted.entrySet().iterator()),
+                ModifiableDAWGMap.load(new ByteArrayInputStream(tsv.toString().getBytes(UTF_8)), UTF_8))) {
+            assertEquals(sorted, dawg);
+            assertEquals(sorted.size(), dawg.size());
+            assertEquals(expected.getUnderlyingSet(), dawg.getUnderlyingSet());
+            assertEquals(expected.getUnderlyingSet().getNodeCount(), dawg.getUnderlyingSet().getNodeCount());
+        }
+        assertTrue(ModifiableDAWGMap.load(new TreeMap<String, String>()).isEmpty());
+        assertEquals(sorted.firstEntry(), ModifiableDAWGMap.load(new ByteArrayInputStream(("\n" + sorted.firstKey() + '\t' + sorted.firstEntry().getValue() + "\n\n").getBytes(UTF_8)), UTF_8).firstEntry());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void loadUnsorted() {
+        ModifiableDAWGMap.load(Arrays.asList(new SimpleEntry<String, String>("b", "1"), new SimpleEntry<String, String>("a", "2")).iterator());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void loadDuplicateKey() throws IOException {
+        ModifiableDAWGMap.load(new ByteArrayInputStream("a\t1\na\t2\n".getBytes(UTF_8)), UTF_8);
+    }
+    
+    @Test
+    public void visitEntries() {
+        ModifiableDAWGMap dawg = new ModifiableDAWGMap();
+        String values[] = {"", "a", "ab", "bab", "session", "abab"};
+        for (int i = 0; i < 2000; i++)
+            dawg.put(Integer.toString(RANDOM.nextInt(1000), 3), values[RANDOM.nextInt(values.length)]);
+        dawg.put("", "empty");
+        dawg.put("1", "");
+        ConcurrentDAWGMap concurrent = new ConcurrentDAWGMap(dawg);
+        //The underlying set doesn't expose its nodes, so its words are copied into the buffer.
+        for (DAWGMap map : Arrays.asList(dawg, dawg.compress(), concurrent, concurrent.snapshot(), new DAWGMap(dawg.getUnderlyingSet()))) {
+            final List<Entry<String, String>> visited = new ArrayList<Entry<String, String>>();
+            assertTrue(map.visitEntries(new DAWGMap.EntryVisitor() {
+                @Override
+                public boolean visit(CharSequence key, CharSequence value) {
+                    assertEquals(key.toString(), key.subSequence(0, key.length()));
+                    if (value.length() > 0)
+                        assertEquals(value.charAt(0), value.toString().charAt(0));
+                    visited.add(new SimpleEntry<String, String>(key.toString(), value.toString()));
+                    return true;
+                }
+            }));
+            assertEquals(new ArrayList<Entry<String, String>>(dawg.entrySet()), visited);
+            
+            final int count[] = new int[1];
+            assertFalse(map.visitEntries(new DAWGMap.EntryVisitor() {
+                @Override
+                public boolean visit(CharSequence key, CharSequence value) {
+                    return ++count[0] < 10;
+                }
+            }));
+            assertEquals(10, count[0]);
+        }
+        assertTrue(new ModifiableDAWGMap().visitEntries(new DAWGMap.EntryVisitor() {
+            @Override
+            public boolean visit(CharSequence key, CharSequence value) {
+                fail();
+                return true;
+            }
+        }));
+    }
+    
     @Test(expected = IllegalArgumentException.class)
     public void putOutOfRange() {
         ModifiableDAWGMap dawg = new ModifiableDAWGMap();
@@ -1,7 +1,16 @@
 package org.quinto.dawg;
 
 import org.quinto.dawg.util.Serializer;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.Arrays;
@@ -11,6 +20,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class DAWGSetValuedMapTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    
     private static Set<String> asSet(String... values) {
         return new TreeSet<String>(Arrays.asList(values));
     }
@@ -59,4 +70,139 @@ public class DAWGSetValuedMapTest {
         assertTrue(dawg.removeValue("b"));
         assertEquals(2, dawg.size());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void navigableValues() throws IOException, ClassNotFoundException {
+        ModifiableDAWGSetValuedMap dawg = new ModifiableDAWGSetValuedMap();
+        TreeSet<String> expected = new TreeSet<String>();
+        for (int i = 0; i < 2000; i++) {
+            String value = String.format("%05d", i * 3);
+            expected.add(value);
+            dawg.put("key", value);
+            dawg.put("ke", value + "x");
+            dawg.put("key1", value);
+        }
+        CompressedDAWGSetValuedMap cdawg = dawg.compress();
+        for (NavigableSet<String> values : Arrays.asList(dawg.get("key"), cdawg.get("key"), Serializer.serializeAndRead(cdawg).get("key"))) {
+            assertEquals(expected.size(), values.size());
+            assertEquals(expected, values);
+            assertEquals(expected.first(), values.first());
+            assertEquals(expected.last(), values.last());
+            for (String value : Arrays.asList("", "00000", "00001", "00300", "03000", "05997", "05998", "9")) {
+                assertEquals(expected.ceiling(value), values.ceiling(value));
+                assertEquals(expected.floor(value), values.floor(value));
+                assertEquals(expected.higher(value), values.higher(value));
+                assertEquals(expected.lower(value), values.lower(value));
+                assertEquals(expected.tailSet(value, true).size(), values.tailSet(value, true).size());
+                assertEquals(expected.headSet(value, false).size(), values.headSet(value, false).size());
+            }
+            assertEquals(expected.subSet("00100", true, "00200", false), values.subSet("00100", true, "00200", false));
+            assertEquals(new ArrayList<String>(expected.descendingSet()), new ArrayList<String>(values.descendingSet()));
+            assertEquals(expected.descendingSet().headSet("05000", true).size(), values.descendingSet().headSet("05000", true).size());
+            assertTrue(values.contains("00003"));
+            assertFalse(values.contains("00004"));
+        }
+        assertEquals(0, dawg.get("k").size());
+        assertEquals(null, dawg.get("k").ceiling(""));
+        
+        NavigableSet<String> values = dawg.get("key");
+        assertEquals(expected.pollFirst(), values.pollFirst());
+        assertEquals(expected.pollLast(), values.pollLast());
+        values.subSet("00100", true, "00200", false).clear();
+        expected.subSet("00100", true, "00200", false).clear();
+        assertEquals(expected, values);
+        assertEquals(expected.size(), dawg.get("key").size());
+        assertEquals(2000, dawg.get("key1").size());
+        values.clear();
+        assertTrue(dawg.get("key").isEmpty());
+        assertEquals(2000, dawg.get("ke").size());
+    }
+    
+    @Test
+    public void postings() throws IOException, ClassNotFoundException {
+        ModifiableDAWGSetValuedMap dawg = new ModifiableDAWGSetValuedMap();
+        Random random = new Random(System.nanoTime());
+        List<String> keys = Arrays.asList("", "red", "green", "blue", "bluish", "empty");
+        Map<String, TreeSet<String>> expected = new HashMap<String, TreeSet<String>>();
+        for (String key : keys)
+            expected.put(key, new TreeSet<String>());
+        for (int i = 0; i < 20000; i++) {
+            String key = keys.get(random.nextInt(keys.size() - 1));
+            String value = "item" + random.nextInt(100000);
+            dawg.put(key, value);
+            expected.get(key).add(value);
+        }
+        CompressedDAWGPostingsMap postings = dawg.compressPostings();
+        assertEquals(postings.size(), dawg.compressPostings().size());
+        CompressedDAWGPostingsMap serialized = Serializer.serializeAndRead(postings);
+        for (CompressedDAWGPostingsMap map : Arrays.asList(postings, serialized, dawg.compress().compressPostings())) {
+            assertEquals(keys.size() - 1, map.size());
+            assertFalse(map.containsKey("empty"));
+            for (String key : keys) {
+                assertEquals(expected.get(key).size(), map.getValueCount(key));
+                assertEquals(new ArrayList<String>(expected.get(key)), toList(map.getValues(map.getValueIds(key))));
+            }
+            TreeSet<String> shared = new TreeSet<String>(expected.get("red"));
+            shared.retainAll(expected.get("green"));
+            assertEquals(new ArrayList<String>(shared), toList(map.getValues(map.intersectValueIds("red", "green"))));
+            shared.retainAll(expected.get("blue"));
+            assertEquals(new ArrayList<String>(shared), toList(map.getValues(map.intersectValueIds("blue", "red", "green"))));
+            assertEquals(0, map.intersectValueIds("red", "missing").length);
+            TreeSet<String> all = new TreeSet<String>(expected.get("blue"));
+            all.addAll(expected.get("bluish"));
+            assertEquals(new ArrayList<String>(all), toList(map.getValues(map.unionValueIds("blue", "bluish", "missing"))));
+            String value = expected.get("red").first();
+            assertEquals(value, map.getValue(map.getValueId(value)));
+            assertEquals(-1, map.getValueId("missing"));
+        }
+    }
+    
+    @Test
+    public void load() throws IOException {
+        ModifiableDAWGSetValuedMap expected = new ModifiableDAWGSetValuedMap();
+        Map<String, Set<String>> map = new HashMap<String, Set<String>>();
+        Random random = new Random(System.nanoTime());
+        for (int i = 0; i < 2000; i++) {
+            String key = Integer.toString(random.nextInt(100), 3);
+            String value = Integer.toString(random.nextInt(50), 2);
+            expected.put(key, value);
+            Set<String> values = map.get(key);
+            if (values == null)
+                map.put(key, values = new HashSet<String>());
+            values.add(value);
+        }
+        //Non-ASCII words are read in the given charset.
+        expected.put("\u00e9t\u00e9", "\u043b\u0435\u0442\u043e");
+        map.put("\u00e9t\u00e9", new HashSet<String>(Arrays.asList("\u043b\u0435\u0442\u043e")));
+        StringBuilder tsv = new StringBuilder();
+        List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>();
+        for (Map.Entry<String, String> e : expected.entries()) {
+            entries.add(e);
+            //Repeated lines are skipped.
+            for (int i = random.nextInt(2); i >= 0; i--)
+                tsv.append(e.getKey()).append('\t').append(e.getValue()).append('\n');
+        }
+        for (CompressedDAWGSetValuedMap dawg : Arrays.asList(
+                ModifiableDAWGSetValuedMap.load(map),
+                ModifiableDAWGSetValuedMap.load(entries.iterator()),
+                ModifiableDAWGSetValuedMap.load(new ByteArrayInputStream(tsv.toString().getBytes(UTF_8)), UTF_8))) {
+            assertEquals(expected, dawg);
+            assertEquals(expected.size(), dawg.size());
+            assertEquals(map.size(), dawg.keySet().size());
+            for (Map.Entry<String, Set<String>> e : map.entrySet())
+                assertEquals(new TreeSet<String>(e.getValue()), dawg.get(e.getKey()));
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void loadUnsorted() throws IOException {
+        ModifiableDAWGSetValuedMap.load(new ByteArrayInputStream("a\t2\na\t1\n".getBytes(UTF_8)), UTF_8);
+    }
+    
+        private static List<String> toList(Iterable<String> iterable) {
+        List<String> ret = new ArrayList<String>();
+        for (String s : iterable)
+            ret.add(s);
+        return ret;
+    }
+}
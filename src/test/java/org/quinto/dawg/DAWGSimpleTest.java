@@ -35,6 +35,8 @@ import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -104,6 +106,450 @@ public class DAWGSimpleTest {
             actual.add(word);
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void merge() {
+        List<DAWGSet> shards = new ArrayList<DAWGSet>();
+        Set<String> all = new TreeSet<String>();
+        for (int i = 0; i < 5; i++) {
+            Set<String> words = new TreeSet<String>();
+            for (int j = 0; j < 200; j++) {
+                int length = RANDOM.nextInt(7);
+                StringBuilder sb = new StringBuilder(length);
+                for (int k = 0; k < length; k++)
+                    // Shards have different alphabets.
+                    sb.append((char)('a' + i + RANDOM.nextInt(3)));
+                words.add(sb.toString());
+            }
+            all.addAll(words);
+            ModifiableDAWGSet shard = new ModifiableDAWGSet(i % 2 == 0, words);
+            shards.add(i % 3 == 0 ? shard.compress() : shard);
+        }
+        shards.add(new ModifiableDAWGSet(Arrays.asList("Ѐ", "ЀЁ", "bЂ")).compress());
+        all.addAll(Arrays.asList("Ѐ", "ЀЁ", "bЂ"));
+        // A shard with a large alphabet.
+        Set<String> words = new TreeSet<String>();
+        for (int i = 0; i < 100; i++)
+            words.add("b" + (char)('Ѐ' + i) + (char)('Ѐ' + i % 10));
+        all.addAll(words);
+        shards.add(new ModifiableDAWGSet(false, words).compress());
+        shards.add(new ModifiableDAWGSet().compress());
+        shards.add(new UnmodifiableDAWGSet(new ModifiableDAWGSet(Arrays.asList("zz", "abc"))));
+        all.addAll(Arrays.asList("zz", "abc"));
+
+        CompressedDAWGSet merged = CompressedDAWGSet.merge(shards);
+        CompressedDAWGSet expected = new ModifiableDAWGSet(all).compress();
+        assertEquals(all, merged);
+        assertArrayEquals(expected.outgoingData, merged.outgoingData);
+        assertEquals(all.size(), merged.size());
+        assertEquals(expected.getNodeCount(), merged.getNodeCount());
+        assertEquals(expected.getTransitionCount(), merged.getTransitionCount());
+        assertEquals(expected.getAlphabet(), merged.getAlphabet());
+        assertTrue(merged.isWithIncomingTransitions());
+        for (String suffix : new String[]{"b", "cd", "Ё", "z", "ЂЂ"}) {
+            Set<String> expectedEndings = new HashSet<String>();
+            for (String word : expected.getStringsEndingWith(suffix))
+                expectedEndings.add(word);
+            Set<String> actualEndings = new HashSet<String>();
+            for (String word : merged.getStringsEndingWith(suffix))
+                actualEndings.add(word);
+            assertEquals(expectedEndings, actualEndings);
+        }
+        assertTrue(CompressedDAWGSet.merge(Collections.<DAWGSet>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void split() {
+        NavigableSet<String> words = new TreeSet<String>();
+        for (int i = 0; i < 500; i++) {
+            int length = RANDOM.nextInt(7);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + RANDOM.nextInt(3)));
+            words.add(sb.toString());
+        }
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(words);
+        for (DAWGSet set : new DAWGSet[]{dawg, dawg.compress()}) {
+            for (String prefix : new String[]{"", "a", "ab", "abcabc", "d"}) {
+                NavigableSet<String> expected = words.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+                for (int parts : new int[]{1, 2, 5, 40}) {
+                    List<NavigableSet<String>> ranges = set.split(prefix, parts);
+                    if (expected.size() >= parts)
+                        assertTrue(ranges.size() >= parts);
+                    List<String> actual = new ArrayList<String>();
+                    for (NavigableSet<String> range : ranges) {
+                        int size = 0;
+                        for (String word : range) {
+                            actual.add(word);
+                            size++;
+                        }
+                        assertEquals(size, range.size());
+                    }
+                    assertEquals(new ArrayList<String>(expected), actual);
+                }
+            }
+            assertEquals(words.size(), set.size());
+            for (int i = 0; i < 100; i++) {
+                String from = words.isEmpty() ? "" : (String)words.toArray()[RANDOM.nextInt(words.size())];
+                String to = from + (char)('a' + RANDOM.nextInt(3));
+                boolean inclFrom = RANDOM.nextBoolean();
+                boolean inclTo = RANDOM.nextBoolean();
+                assertEquals(words.subSet(from, inclFrom, to, inclTo).size(), set.subSet(from, inclFrom, to, inclTo).size());
+                assertEquals(words.headSet(to, inclTo).size(), set.headSet(to, inclTo).size());
+                assertEquals(words.tailSet(from, inclFrom).size(), set.tailSet(from, inclFrom).size());
+                assertEquals(words.subSet(from, true, from + Character.MAX_VALUE, false).size(), set.prefixSet(from).size());
+            }
+        }
+    }
+    
+    @Test
+    public void parallelSearch() throws InterruptedException {
+        NavigableSet<String> words = new TreeSet<String>();
+        for (int i = 0; i < 2000; i++) {
+            int length = RANDOM.nextInt(8);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + RANDOM.nextInt(4)));
+            words.add(sb.toString());
+        }
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(false, words);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (DAWGSet set : new DAWGSet[]{dawg, new ModifiableDAWGSet(words).compress(), new UnmodifiableDAWGSet(dawg)}) {
+                for (String str : new String[]{"", "a", "ab", "dcba", "e"}) {
+                    List<String> withSubstring = new ArrayList<String>();
+                    List<String> endingWith = new ArrayList<String>();
+                    for (String word : words) {
+                        if (word.contains(str))
+                            withSubstring.add(word);
+                        if (word.endsWith(str))
+                            endingWith.add(word);
+                    }
+                    assertEquals(withSubstring, toList(set.getStringsWithSubstring(str, executor, true)));
+                    assertEquals(new HashSet<String>(withSubstring), new HashSet<String>(toList(set.getStringsWithSubstring(str, executor, false))));
+                    assertEquals(endingWith, toList(set.getStringsEndingWith(str, executor, true)));
+                    assertEquals(new HashSet<String>(endingWith), new HashSet<String>(toList(set.getStringsEndingWith(str, executor, false))));
+                }
+                List<String> expected = new ArrayList<String>();
+                for (String word : words.subSet("b", true, "bz", false))
+                    if (word.contains("c") && word.endsWith("a"))
+                        expected.add(word);
+                assertEquals(expected, toList(set.getStrings("b", "c", "a", 7, executor, true)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void substringIndex() throws IOException, ClassNotFoundException {
+        for (int alphabetSize : new int[]{4, 100}) {
+            NavigableSet<String> words = new TreeSet<String>();
+            for (int i = 0; i < 2000; i++) {
+                int length = RANDOM.nextInt(10);
+                StringBuilder sb = new StringBuilder(length);
+                for (int j = 0; j < length; j++)
+                    sb.append((char)('a' + RANDOM.nextInt(alphabetSize)));
+                words.add(sb.toString());
+            }
+            CompressedDAWGSet plain = new ModifiableDAWGSet(false, words).compress();
+            CompressedDAWGSet indexed = new ModifiableDAWGSet(false, words).compress(true);
+            assertFalse(plain.isWithSubstringIndex());
+            assertTrue(indexed.isWithSubstringIndex());
+            assertEquals(plain, indexed);
+            CompressedDAWGSet serialized = Serializer.serializeAndRead(indexed);
+            assertTrue(serialized.isWithSubstringIndex());
+            for (DAWGSet set : new DAWGSet[]{indexed, serialized}) {
+                for (String sub : new String[]{"a", "ab", "aba", "abab", "bb", "cab", "dcba", "e"}) {
+                    assertEquals(toList(plain.getStringsWithSubstring(sub)), toList(set.getStringsWithSubstring(sub)));
+                    for (boolean descending : new boolean[]{false, true}) {
+                        assertEquals(toList(plain.getStrings("a", sub, null, descending, null, false, null, false)), toList(set.getStrings("a", sub, null, descending, null, false, null, false)));
+                        assertEquals(toList(plain.getStrings("ba", sub, "a", descending, null, false, null, false)), toList(set.getStrings("ba", sub, "a", descending, null, false, null, false)));
+                        assertEquals(toList(plain.getStrings("", sub, null, descending, "b", false, "cab", true)), toList(set.getStrings("", sub, null, descending, "b", false, "cab", true)));
+                    }
+                }
+            }
+        }
+        assertEquals(Arrays.asList("abc"), toList(new ModifiableDAWGSet(Arrays.asList("", "abc", "bd")).compress(true).getStringsWithSubstring("bc")));
+        assertFalse(new ModifiableDAWGSet().compress(true).getStringsWithSubstring("a").iterator().hasNext());
+    }
+
+    @Test
+    public void memoizedSubstringSearch() {
+        NavigableSet<String> words = new TreeSet<String>();
+        for (int i = 0; i < 3000; i++) {
+            int length = RANDOM.nextInt(10);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + RANDOM.nextInt(3)));
+            words.add(sb.toString());
+        }
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(false, words);
+        for (DAWGSet set : new DAWGSet[]{dawg, dawg.compress(), dawg.compress(true), new UnmodifiableDAWGSet(dawg)}) {
+            for (String str : new String[]{"", "a", "aa", "aba", "abab", "cc", "ccccc", "ccccccccccc", "d"}) {
+                for (String prefix : new String[]{"", "b", "ca"}) {
+                    List<String> withSubstring = new ArrayList<String>();
+                    List<String> endingWith = new ArrayList<String>();
+                    for (String word : words.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+                        if (word.contains(str))
+                            withSubstring.add(word);
+                        if (word.endsWith(str))
+                            endingWith.add(word);
+                    }
+                    assertEquals(withSubstring, toList(set.getStrings(prefix, str, null, false, null, false, null, false)));
+                    assertEquals(endingWith, toList(set.getStrings(prefix, null, str, false, null, false, null, false)));
+                    Collections.reverse(endingWith);
+                    assertEquals(endingWith, toList(set.getStrings(prefix, null, str, true, null, false, null, false)));
+                }
+                boolean expected = false;
+                for (String word : words)
+                    expected |= word.contains(str);
+                assertEquals(expected, set.containsAnyWithSubstring(str));
+            }
+        }
+        assertFalse(new ModifiableDAWGSet().containsAnyWithSubstring(""));
+        assertTrue(new ModifiableDAWGSet(Arrays.asList("")).containsAnyWithSubstring(""));
+    }
+
+    @Test
+    public void reversedWords() throws IOException, ClassNotFoundException {
+        for (int alphabetSize : new int[]{4, 100}) {
+            NavigableSet<String> words = new TreeSet<String>();
+            for (int i = 0; i < 2000; i++) {
+                int length = RANDOM.nextInt(8);
+                StringBuilder sb = new StringBuilder(length);
+                for (int j = 0; j < length; j++)
+                    sb.append((char)('a' + RANDOM.nextInt(alphabetSize)));
+                words.add(sb.toString());
+            }
+            CompressedDAWGSet withIncoming = new ModifiableDAWGSet(words).compress();
+            CompressedDAWGSet reversed = withIncoming.withReversedWords();
+            assertTrue(reversed.isWithReversedWords());
+            assertFalse(reversed.isWithIncomingTransitions());
+            assertEquals(words, reversed);
+            ModifiableDAWGSet reversals = new ModifiableDAWGSet(false);
+            for (String word : words)
+                reversals.add(new StringBuilder(word).reverse().toString());
+            assertEquals(reversals.compress(), reversed.getReversedWords());
+            assertEquals(reversals.getNodeCount(), reversed.getReversedWords().getNodeCount());
+            CompressedDAWGSet serialized = Serializer.serializeAndRead(reversed);
+            assertTrue(serialized.isWithReversedWords());
+            for (DAWGSet set : new DAWGSet[]{reversed, serialized, reversed.withReversedWords()}) {
+                for (String suffix : new String[]{"a", "ab", "ba", "cab", "e"}) {
+                    for (String sub : new String[]{null, "b", "abc"}) {
+                        for (boolean descending : new boolean[]{false, true}) {
+                            Set<String> expected = new HashSet<String>(toList(withIncoming.getStrings("", sub, suffix, descending, "b", true, "c", false)));
+                            assertEquals(expected, new HashSet<String>(toList(set.getStrings("", sub, suffix, descending, "b", true, "c", false))));
+                        }
+                    }
+                    assertEquals(new HashSet<String>(toList(withIncoming.getStringsEndingWith(suffix))), new HashSet<String>(toList(set.getStringsEndingWith(suffix))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void suffixSearchWithoutDuplicates() {
+        List<String> words = new ArrayList<String>();
+        for (String prefix : new String[]{"", "b", "dr", "s", "st", "str", "sw", "th"})
+            for (String suffix : new String[]{"ing", "ring", "ming", "ings", "ed"})
+                words.add(prefix + suffix);
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(words);
+        for (DAWGSet set : new DAWGSet[]{dawg, dawg.compress()}) {
+            for (String suffix : new String[]{"g", "ing", "ring", "s", "d", "x"}) {
+                List<String> expected = new ArrayList<String>();
+                for (String word : new TreeSet<String>(words))
+                    if (word.endsWith(suffix))
+                        expected.add(word);
+                List<String> actual = toList(set.getStringsEndingWith(suffix));
+                Collections.sort(actual);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void prefixAndSuffix() {
+        NavigableSet<String> words = new TreeSet<String>();
+        for (int i = 0; i < 3000; i++) {
+            int length = RANDOM.nextInt(9);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + RANDOM.nextInt(3)));
+            words.add(sb.toString());
+        }
+        words.addAll(Arrays.asList("unable", "unbable", "unnable", "una", "nable"));
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(words);
+        for (String prefix : new String[]{"a", "ab", "bac", "un", "una"}) {
+            for (String suffix : new String[]{"a", "ba", "cab", "able", "nable", "aba"}) {
+                List<String> expected = new ArrayList<String>();
+                for (String word : words.subSet(prefix, true, prefix + Character.MAX_VALUE, false))
+                    if (word.endsWith(suffix) && word.contains("b"))
+                        expected.add(word);
+                assertEquals(expected, toList(dawg.getStrings(prefix, "b", suffix, false, null, false, null, false)));
+                Collections.reverse(expected);
+                assertEquals(expected, toList(dawg.getStrings(prefix, "b", suffix, true, null, false, null, false)));
+            }
+        }
+        assertEquals(Arrays.asList("unable", "unbable", "unnable"), toList(dawg.getStrings("un", null, "able", false, null, false, null, false)));
+        assertEquals(Arrays.asList("una"), toList(dawg.getStrings("una", null, "a", false, null, false, null, false)));
+    }
+
+    @Test
+    public void withSuffixIndex() throws IOException, ClassNotFoundException {
+        for (int alphabetSize : new int[]{4, 40, 100}) {
+            NavigableSet<String> words = new TreeSet<String>();
+            for (int i = 0; i < 2000; i++) {
+                int length = RANDOM.nextInt(8);
+                StringBuilder sb = new StringBuilder(length);
+                for (int j = 0; j < length; j++)
+                    sb.append((char)('a' + RANDOM.nextInt(alphabetSize)));
+                words.add(sb.toString());
+            }
+            CompressedDAWGSet expected = new ModifiableDAWGSet(true, words).compress();
+            CompressedDAWGSet prefixOnly = new ModifiableDAWGSet(false, words).compress();
+            assertFalse(prefixOnly.isWithIncomingTransitions());
+            CompressedDAWGSet derived = prefixOnly.withSuffixIndex();
+            assertTrue(derived.isWithIncomingTransitions());
+            assertTrue(derived == derived.withSuffixIndex());
+            assertEquals(expected.incomingData.length, derived.incomingData.length);
+            assertArrayEquals(expected.outgoingData, derived.outgoingData);
+            assertEquals(words, derived);
+            for (DAWGSet set : new DAWGSet[]{derived, Serializer.serializeAndRead(derived)}) {
+                for (String suffix : new String[]{"a", "ab", "ba", "cab", "abc", "z"}) {
+                    List<String> expectedWords = toList(expected.getStringsEndingWith(suffix));
+                    List<String> actualWords = toList(set.getStringsEndingWith(suffix));
+                    Collections.sort(expectedWords);
+                    Collections.sort(actualWords);
+                    assertEquals(expectedWords, actualWords);
+                }
+            }
+        }
+        assertTrue(new ModifiableDAWGSet(false).compress().withSuffixIndex().isEmpty());
+    }
+
+    @Test
+    public void lazyIncomingTransitions() {
+        ModifiableDAWGSet eager = new ModifiableDAWGSet(true);
+        ModifiableDAWGSet lazy = new ModifiableDAWGSet(true, true);
+        assertTrue(lazy.isWithIncomingTransitions());
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                int length = RANDOM.nextInt(7);
+                StringBuilder sb = new StringBuilder(length);
+                for (int j = 0; j < length; j++)
+                    sb.append((char)('a' + RANDOM.nextInt(4)));
+                String word = sb.toString();
+                if (RANDOM.nextInt(4) > 0)
+                    assertEquals(eager.add(word), lazy.add(word));
+                else
+                    assertEquals(eager.remove(word), lazy.remove(word));
+            }
+            assertEquals(eager, lazy);
+            for (String suffix : new String[]{"a", "ab", "dc", "bab"}) {
+                List<String> expected = toList(eager.getStringsEndingWith(suffix));
+                List<String> actual = toList(lazy.getStringsEndingWith(suffix));
+                Collections.sort(expected);
+                Collections.sort(actual);
+                assertEquals(expected, actual);
+                assertEquals(toList(eager.getStrings("a", null, suffix, false, null, false, null, false)), toList(lazy.getStrings("a", null, suffix, false, null, false, null, false)));
+            }
+            CompressedDAWGSet expected = eager.compress();
+            CompressedDAWGSet actual = lazy.compress();
+            assertArrayEquals(expected.outgoingData, actual.outgoingData);
+            assertEquals(toList(expected), toList(actual));
+        }
+        ModifiableDAWGSet lazyCompressed = new ModifiableDAWGSet(true, true);
+        lazyCompressed.addAll(Arrays.asList("ab", "cb", "abb"));
+        CompressedDAWGSet compressed = lazyCompressed.compress();
+        assertTrue(compressed.isWithIncomingTransitions());
+        List<String> endings = toList(compressed.getStringsEndingWith("b"));
+        Collections.sort(endings);
+        assertEquals(Arrays.asList("ab", "abb", "cb"), endings);
+    }
+
+    @Test
+    public void minimize() {
+        ModifiableDAWGSet dawg = new ModifiableDAWGSet(true);
+        Set<String> words = new TreeSet<String>();
+        for (int i = 0; i < 5000; i++) {
+            int length = RANDOM.nextInt(8);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++)
+                sb.append((char)('a' + RANDOM.nextInt(5)));
+            String word = sb.toString();
+            if (RANDOM.nextInt(3) > 0)
+                assertEquals(words.add(word), dawg.add(word));
+            else
+                assertEquals(words.remove(word), dawg.remove(word));
+        }
+        dawg.minimize();
+        ModifiableDAWGSet fresh = new ModifiableDAWGSet(true);
+        fresh.addAll(words);
+        assertEquals(fresh, dawg);
+        assertEquals(words.size(), dawg.size());
+        assertEquals(fresh.getNodeCount(), dawg.getNodeCount());
+        assertEquals(fresh.getTransitionCount(), dawg.getTransitionCount());
+        assertEquals(fresh.getMaxLength(), dawg.getMaxLength());
+        CompressedDAWGSet expectedCompressed = fresh.compress();
+        CompressedDAWGSet actualCompressed = dawg.compress();
+        assertArrayEquals(expectedCompressed.outgoingData, actualCompressed.outgoingData);
+        assertEquals(expectedCompressed.incomingData.length, actualCompressed.incomingData.length);
+        List<String> expected = toList(fresh.getStringsEndingWith("ab"));
+        List<String> actual = toList(dawg.getStringsEndingWith("ab"));
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+        for (String word : new String[]{"abcde", "eeee", ""}) {
+            assertEquals(words.add(word), dawg.add(word));
+            assertTrue(dawg.contains(word));
+        }
+        String removed = words.iterator().next();
+        words.remove(removed);
+        assertTrue(dawg.remove(removed));
+        assertEquals(new ArrayList<String>(words), toList(dawg));
+    }
+
+    @Test
+    public void indexOf() throws IOException, ClassNotFoundException {
+        //Alphabets fitting one int, several ints and the large alphabet layout.
+        for (int letters : new int[]{5, 40, 100}) {
+            ModifiableDAWGSet dawg = new ModifiableDAWGSet();
+            for (int i = 0; i < 2000; i++) {
+                int length = RANDOM.nextInt(6);
+                StringBuilder sb = new StringBuilder(length);
+                for (int j = 0; j < length; j++)
+                    sb.append((char)('0' + RANDOM.nextInt(letters)));
+                dawg.add(sb.toString());
+            }
+            CompressedDAWGSet cdawg = dawg.compress();
+            List<String> words = toList(cdawg);
+            for (CompressedDAWGSet set : new CompressedDAWGSet[]{cdawg, Serializer.serializeAndRead(cdawg)}) {
+                for (int i = 0; i < words.size(); i++) {
+                    assertEquals(i, set.indexOf(words.get(i)));
+                    assertEquals(words.get(i), set.get(i));
+                }
+                assertEquals(-1, set.indexOf(words.get(words.size() - 1) + '0' + (char)('0' + letters)));
+            }
+            assertEquals(-1, cdawg.indexOf("" + (char)('0' + letters)));
+        }
+        CompressedDAWGSet cdawg = new ModifiableDAWGSet(Arrays.asList("ab", "abc")).compress();
+        assertEquals(-1, cdawg.indexOf(""));
+        assertEquals(-1, cdawg.indexOf("a"));
+        assertEquals(1, cdawg.indexOf("abc"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        new ModifiableDAWGSet(Arrays.asList("a", "b")).compress().get(2);
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> ret = new ArrayList<T>();
+        for (T e : iterable)
+            ret.add(e);
+        return ret;
+    }
     
     @Test
     public void addSimple() {
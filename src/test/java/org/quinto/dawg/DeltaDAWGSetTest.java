@@ -0,0 +1,136 @@
+package org.quinto.dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaDAWGSetTest {
+    private static final Random RANDOM = new Random(System.nanoTime());
+
+    private static String randomWord() {
+        int length = RANDOM.nextInt(6);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            sb.append((char)('a' + RANDOM.nextInt(4)));
+        return sb.toString();
+    }
+
+    private static <T> List<T> toList(Iterable<T> i) {
+        List<T> ret = new ArrayList<T>();
+        for (T e : i)
+            ret.add(e);
+        return ret;
+    }
+
+    private static Set<String> endingWith(NavigableSet<String> set, String suffix) {
+        Set<String> ret = new HashSet<String>();
+        for (String s : set)
+            if (s.endsWith(suffix))
+                ret.add(s);
+        return ret;
+    }
+
+    private static void check(NavigableSet<String> expected, DeltaDAWGSet dawg) {
+        assertEquals(expected.size(), dawg.size());
+        assertEquals(toList(expected), toList(dawg));
+        assertEquals(toList(expected.descendingSet()), toList(dawg.descendingSet()));
+        assertEquals(toList(expected.subSet("ab", false, "cb", true)), toList(dawg.subSet("ab", false, "cb", true)));
+        assertEquals(toList(expected.subSet("b", true, "bz", false)), toList(dawg.getStringsStartingWith("b")));
+        assertEquals(endingWith(expected, "ab"), new HashSet<String>(toList(dawg.getStringsEndingWith("ab"))));
+        assertEquals(expected.isEmpty() ? null : expected.first(), dawg.isEmpty() ? null : dawg.first());
+        assertEquals(expected.lower("c"), dawg.lower("c"));
+        assertEquals(expected.ceiling("c"), dawg.ceiling("c"));
+    }
+
+    @Test
+    public void mergedQueries() {
+        List<String> initial = Arrays.asList("", "ab", "abc", "b", "bab", "cab", "d");
+        DeltaDAWGSet dawg = new DeltaDAWGSet(initial);
+        NavigableSet<String> expected = new TreeSet<String>(initial);
+        for (int i = 0; i < 1000; i++) {
+            String word = randomWord();
+            if (RANDOM.nextBoolean())
+                assertEquals(expected.add(word), dawg.add(word));
+            else
+                assertEquals(expected.remove(word), dawg.remove(word));
+            if (i % 100 == 0)
+                check(expected, dawg);
+            if (i % 300 == 299) {
+                dawg.compact();
+                assertEquals(0, dawg.getDeltaSize());
+                check(expected, dawg);
+            }
+        }
+        check(expected, dawg);
+        assertEquals(new ModifiableDAWGSet(expected).compress(), dawg.compress());
+        if (!expected.isEmpty())
+            assertEquals(expected.last(), dawg.determineLongestPrefixInDAWG(expected.last() + "zz"));
+        assertEquals(expected.pollFirst(), dawg.pollFirst());
+        check(expected, dawg);
+        dawg.clear();
+        assertTrue(dawg.isEmpty());
+        assertFalse(dawg.compact());
+    }
+
+    @Test
+    public void backgroundCompaction() throws InterruptedException {
+        DeltaDAWGSet dawg = new DeltaDAWGSet();
+        dawg.startCompaction(1, TimeUnit.MILLISECONDS);
+        try {
+            NavigableSet<String> expected = new TreeSet<String>();
+            for (int i = 0; i < 3000; i++) {
+                String word = randomWord();
+                if (RANDOM.nextInt(3) > 0)
+                    assertEquals(expected.add(word), dawg.add(word));
+                else
+                    assertEquals(expected.remove(word), dawg.remove(word));
+            }
+            check(expected, dawg);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (dawg.getDeltaSize() > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+            assertEquals(0, dawg.getDeltaSize());
+            check(expected, dawg);
+        } finally {
+            dawg.stopCompaction();
+        }
+    }
+
+    @Test
+    public void clearDuringCompaction() throws InterruptedException {
+        NavigableSet<String> initial = new TreeSet<String>();
+        for (int i = 0; i < 10000; i++)
+            initial.add(Integer.toString(RANDOM.nextInt(), 36));
+        for (int round = 0; round < 3; round++) {
+            final DeltaDAWGSet dawg = new DeltaDAWGSet(initial);
+            dawg.add("added");
+            dawg.remove(initial.first());
+            Thread compaction = new Thread() {
+                @Override
+                public void run() {
+                    dawg.compact();
+                }
+            };
+            compaction.start();
+            //The new base takes longer to build, so the set is cleared in the middle of the compaction.
+            Thread.sleep(2);
+            dawg.clear();
+            compaction.join();
+            assertTrue(dawg.isEmpty());
+            assertEquals(0, dawg.getDeltaSize());
+            dawg.add("ab");
+            dawg.compact();
+            assertEquals(Arrays.asList("ab"), toList(dawg));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.quinto.dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentDAWGSetTest {
+    private static final Random RANDOM = new Random(System.nanoTime());
+
+    private static String randomWord() {
+        int length = RANDOM.nextInt(6);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            sb.append((char)('a' + RANDOM.nextInt(4)));
+        return sb.toString();
+    }
+
+    @Test
+    public void addAndRemove() {
+        PersistentDAWGSet dawg = new PersistentDAWGSet();
+        NavigableSet<String> expected = new TreeSet<String>();
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord();
+            if (RANDOM.nextBoolean())
+                assertEquals(expected.add(word), dawg.add(word));
+            else
+                assertEquals(expected.remove(word), dawg.remove(word));
+            assertEquals(expected.size(), dawg.size());
+        }
+        assertEquals(expected, dawg);
+        assertEquals(new ArrayList<String>(expected), new ArrayList<String>(dawg));
+        assertEquals(new ArrayList<String>(expected.descendingSet()), new ArrayList<String>(dawg.descendingSet()));
+        assertEquals(expected.subSet("ab", true, "c", false), dawg.subSet("ab", true, "c", false));
+        assertEquals(expected.headSet("b", true), dawg.headSet("b", true));
+        assertEquals(new ArrayList<String>(expected.tailSet("ca", false).descendingSet()), new ArrayList<String>(dawg.tailSet("ca", false).descendingSet()));
+
+        ModifiableDAWGSet mdawg = new ModifiableDAWGSet(expected);
+        assertEquals(mdawg.getNodeCount(), dawg.getNodeCount());
+        assertEquals(mdawg.getTransitionCount(), dawg.getTransitionCount());
+        assertEquals(mdawg.getAlphabet(), dawg.getAlphabet());
+        assertEquals(mdawg.compress(), dawg.compress());
+
+        for (String word : expected)
+            assertTrue(dawg.remove(word));
+        assertTrue(dawg.isEmpty());
+        assertEquals(1, dawg.getNodeCount());
+        assertEquals(0, dawg.getTransitionCount());
+    }
+
+    @Test
+    public void snapshot() {
+        List<String> words = Arrays.asList("", "tap", "taps", "top", "tops", "stop", "stops");
+        PersistentDAWGSet dawg = new PersistentDAWGSet(words);
+        PersistentDAWGSet snapshot = dawg.snapshot();
+        assertTrue(snapshot.isImmutable());
+        assertFalse(dawg.isImmutable());
+        assertTrue(snapshot == snapshot.snapshot());
+
+        dawg.remove("taps");
+        dawg.remove("");
+        dawg.add("tip");
+        assertEquals(new TreeSet<String>(words), snapshot);
+        assertEquals(7, snapshot.size());
+        assertEquals(Arrays.asList("stops", "taps", "tops"), toList(snapshot.getStringsEndingWith("ps")));
+        assertEquals(new TreeSet<String>(Arrays.asList("stop", "stops", "tap", "tip", "top", "tops")), dawg);
+
+        try {
+            snapshot.add("tip");
+            assertTrue(false);
+        } catch (UnsupportedOperationException e) {
+        }
+
+        PersistentDAWGSet cleared = dawg.snapshot();
+        dawg.clear();
+        assertTrue(dawg.isEmpty());
+        assertEquals(6, cleared.size());
+        assertTrue(cleared.contains("tip"));
+    }
+
+    private static List<String> toList(Iterable<String> i) {
+        List<String> ret = new ArrayList<String>();
+        for (String s : i)
+            ret.add(s);
+        return ret;
+    }
+}
@@ -0,0 +1,121 @@
+package org.quinto.dawg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardedDAWGSetTest {
+    private static final Random RANDOM = new Random(System.nanoTime());
+
+    private static String randomWord() {
+        int length = RANDOM.nextInt(6);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            sb.append((char)('a' + RANDOM.nextInt(4)));
+        return sb.toString();
+    }
+
+    private static <T> List<T> toList(Iterable<T> i) {
+        List<T> ret = new ArrayList<T>();
+        for (T e : i)
+            ret.add(e);
+        return ret;
+    }
+
+    private static void check(NavigableSet<String> expected, ShardedDAWGSet dawg) {
+        assertEquals(expected.size(), dawg.size());
+        assertEquals(toList(expected), toList(dawg));
+        assertEquals(toList(expected.descendingSet()), toList(dawg.descendingSet()));
+        assertEquals(toList(expected.subSet("ab", false, "cb", true)), toList(dawg.subSet("ab", false, "cb", true)));
+        assertEquals(toList(expected.subSet("bb", true, "d", false)), toList(dawg.subSet("bb", true, "d", false)));
+        assertEquals(toList(expected.subSet("b", true, "bz", false)), toList(dawg.getStringsStartingWith("b")));
+        assertEquals(toList(expected.subSet("b", true, "bz", false).descendingSet()), toList(dawg.prefixSet("b").descendingSet()));
+        Set<String> endings = new HashSet<String>();
+        for (String s : expected)
+            if (s.endsWith("ab"))
+                endings.add(s);
+        assertEquals(endings, new HashSet<String>(toList(dawg.getStringsEndingWith("ab"))));
+        assertEquals(expected.lower("bb"), dawg.lower("bb"));
+        assertEquals(expected.ceiling("c"), dawg.ceiling("c"));
+        for (String s : expected)
+            assertTrue(dawg.contains(s));
+    }
+
+    @Test
+    public void routing() {
+        ShardedDAWGSet dawg = new ShardedDAWGSet("b", "bb", "d");
+        assertEquals(4, dawg.getShardCount());
+        assertEquals(0, dawg.getShardIndex(""));
+        assertEquals(0, dawg.getShardIndex("azz"));
+        assertEquals(1, dawg.getShardIndex("b"));
+        assertEquals(1, dawg.getShardIndex("bazz"));
+        assertEquals(2, dawg.getShardIndex("bb"));
+        assertEquals(3, dawg.getShardIndex("dd"));
+        NavigableSet<String> expected = new TreeSet<String>();
+        for (int i = 0; i < 1000; i++) {
+            String word = randomWord();
+            if (RANDOM.nextInt(3) > 0)
+                assertEquals(expected.add(word), dawg.add(word));
+            else
+                assertEquals(expected.remove(word), dawg.remove(word));
+            if (i % 200 == 0)
+                check(expected, dawg);
+        }
+        check(expected, dawg);
+        for (int i = 0; i < dawg.getShardCount(); i++)
+            for (String word : dawg.getShard(i))
+                assertEquals(i, dawg.getShardIndex(word));
+        CompressedDAWGSet compressed = dawg.compress();
+        assertEquals(expected, compressed);
+        assertArrayEquals(new ModifiableDAWGSet(expected).compress().outgoingData, compressed.outgoingData);
+        assertEquals(expected.pollFirst(), dawg.pollFirst());
+        assertEquals(expected.pollLast(), dawg.pollLast());
+        check(expected, dawg);
+        dawg.clear();
+        assertTrue(dawg.isEmpty());
+    }
+
+    @Test
+    public void rebuild() throws InterruptedException, ExecutionException {
+        ShardedDAWGSet dawg = new ShardedDAWGSet(false, Arrays.asList("a", "ba", "ca"), "b", "c");
+        dawg.rebuildShard(1, Arrays.asList("b", "bb"));
+        assertEquals(Arrays.asList("a", "b", "bb", "ca"), toList(dawg));
+        assertTrue(dawg.getShard(1) instanceof CompressedDAWGSet);
+        try {
+            dawg.rebuildShard(1, Arrays.asList("a", "b"));
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            dawg.rebuildShards(Arrays.asList(Arrays.asList("", "ab"), null, Arrays.asList("c", "cd")), executor);
+            assertEquals(Arrays.asList("", "ab", "b", "bb", "c", "cd"), toList(dawg));
+            try {
+                dawg.rebuildShards(Arrays.asList(Arrays.asList("x"), null, Arrays.asList("ca")), executor);
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+            // No shards are replaced if any of them is wrong.
+            assertEquals(Arrays.asList("", "ab", "b", "bb", "c", "cd"), toList(dawg));
+        } finally {
+            executor.shutdown();
+        }
+        assertFalse(dawg.contains("ca"));
+        assertEquals("bb", dawg.determineLongestPrefixInDAWG("bbb"));
+    }
+}